@@ -2,11 +2,27 @@ package com.github.minemanmods.MinemanUtilities;
 
 import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
 import com.github.minemanmods.MinemanUtilities.exceptions.NotEnoughSpaceException;
+import com.github.minemanmods.MinemanUtilities.inventory.InventoryEscrow;
+import com.github.minemanmods.MinemanUtilities.inventory.InventorySorter;
+import com.github.minemanmods.MinemanUtilities.inventory.InventoryTransaction;
+import com.github.minemanmods.MinemanUtilities.inventory.InventoryVersions;
+import com.github.minemanmods.MinemanUtilities.inventory.ItemCounts;
+import com.github.minemanmods.MinemanUtilities.inventory.ItemKey;
+import com.github.minemanmods.MinemanUtilities.inventory.ItemMatcher;
+import com.github.minemanmods.MinemanUtilities.inventory.ItemPlacement;
+import com.github.minemanmods.MinemanUtilities.inventory.RemovalPlan;
+import com.github.minemanmods.MinemanUtilities.inventory.TransactionJournal;
+import net.minecraft.server.v1_12_R1.IInventory;
+import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftInventory;
+import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftInventoryDoubleChest;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
 import java.security.InvalidParameterException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class InventoryAPI {
@@ -43,6 +59,26 @@ public class InventoryAPI {
         return true;
     }
 
+    /**
+     * Gets the container behind an inventory, which stays the same however many Bukkit wrappers are made for it,
+     * such as Chest.getInventory() creating a new wrapper around the same chest on every call.
+     * Double chests are represented by their left half, as every wrapper of a double chest has the same halves.
+     * Returns the inventory itself if it isn't backed by Minecraft.
+     * Returns null if the inventory is null.
+     * */
+    public static Object getContainer(final Inventory inventory) {
+        if (inventory instanceof CraftInventoryDoubleChest) {
+            return getContainer(((CraftInventoryDoubleChest) inventory).getLeftSide());
+        }
+        if (inventory instanceof CraftInventory) {
+            IInventory container = ((CraftInventory) inventory).getInventory();
+            if (container != null) {
+                return container;
+            }
+        }
+        return inventory;
+    }
+
     /**
      * Duplicates an inventory contents. See Inventory::getContents
      * Items
@@ -64,10 +100,165 @@ public class InventoryAPI {
         return new ItemStack[0];
     }
 
+    /**
+     * Sets an inventory's contents, only writing the slots that actually differ.
+     * Unlike Inventory.setContents(), unchanged slots are not rewritten, so viewers are only sent the slots that changed.
+     * Slots beyond the end of the contents are cleared.
+     * Items that do not fulfill the requirements of isValidItem() are treated as empty.
+     * Returns how many slots were written.
+     * Returns zero if the inventory is not valid.
+     * Returns zero if the contents are null.
+     * Returns zero without writing anything if the contents would not hold the items reserved in the inventory, see InventoryEscrow
+     * */
+    public static int applyContents(final Inventory inventory, final ItemStack[] contents) {
+        if (!isValidInventory(inventory) || contents == null) {
+            return 0;
+        }
+        if (!InventoryEscrow.coversReservations(inventory, contents)) {
+            return 0;
+        }
+        int written = 0;
+        ItemStack[] current = inventory.getContents();
+        for (int i = 0; i < current.length; i++) {
+            ItemStack target = i < contents.length ? contents[i] : null;
+            if (!isSameSlot(current[i], target)) {
+                inventory.setItem(i, ItemAPI.isValidItem(target) ? target : null);
+                written++;
+            }
+        }
+        if (written > 0) {
+            InventoryVersions.touch(inventory);
+        }
+        return written;
+    }
+
+    /**
+     * Sets the item in a single slot, unless the slot already holds an identical item.
+     * Items that do not fulfill the requirements of isValidItem() are treated as empty.
+     * Returns true if the slot was written.
+     * Returns false if the inventory is not valid.
+     * */
+    public static boolean setItemIfChanged(final Inventory inventory, final int slot, final ItemStack item) {
+        if (!isValidInventory(inventory)) {
+            return false;
+        }
+        if (isSameSlot(inventory.getItem(slot), item)) {
+            return false;
+        }
+        inventory.setItem(slot, ItemAPI.isValidItem(item) ? item : null);
+        InventoryVersions.touch(inventory);
+        return true;
+    }
+
+    /**
+     * Checks whether two slots hold identical items, see ItemAPI.isSameItem()
+     * Items that do not fulfill the requirements of isValidItem() are treated as empty, and two empty slots are the same.
+     * */
+    public static boolean isSameSlot(final ItemStack current, final ItemStack target) {
+        boolean currentEmpty = !ItemAPI.isValidItem(current);
+        boolean targetEmpty = !ItemAPI.isValidItem(target);
+        if (currentEmpty || targetEmpty) {
+            return currentEmpty && targetEmpty;
+        }
+        return ItemAPI.isSameItem(current, target);
+    }
+
+    /**
+     * Merges similar partial stacks in an inventory, freeing up slots.
+     * Stacks are poured from later slots into earlier ones, so items only move when they have to.
+     * The new layout is worked out in full first and then applied in one go, writing only the slots that changed.
+     * Only storage slots are compacted, armour and off hand slots are left alone.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Returns how many slots were written.
+     * Returns zero if the inventory is not valid.
+     * */
+    public static int compactInventory(final Inventory inventory) {
+        if (!isValidInventory(inventory)) {
+            return 0;
+        }
+        ItemStack[] contents = inventory.getContents();
+        int storageSize = inventory.getStorageContents().length;
+        ItemStack[] storage = compactContents(Arrays.copyOf(contents, storageSize), inventory.getMaxStackSize());
+        System.arraycopy(storage, 0, contents, 0, storageSize);
+        return applyContents(inventory, contents);
+    }
+
+    /**
+     * Merges similar partial stacks in a set of items, without changing the given items.
+     * See compactInventory()
+     * Items in slots that do not change are returned as is, items in slots that do are copies.
+     * Returns an empty array if the contents are null.
+     * */
+    public static ItemStack[] compactContents(final ItemStack[] contents, final int maxStackSize) {
+        if (contents == null) {
+            return new ItemStack[0];
+        }
+        int[] amounts = new int[contents.length];
+        Map<ItemKey, List<Integer>> partials = new LinkedHashMap<>();
+        // Group the partial stacks of each item together, in slot order
+        for (int i = 0; i < contents.length; i++) {
+            ItemStack item = contents[i];
+            if (!ItemAPI.isValidItem(item)) {
+                continue;
+            }
+            amounts[i] = item.getAmount();
+            if (amounts[i] < Math.min(item.getMaxStackSize(), maxStackSize)) {
+                partials.computeIfAbsent(ItemKey.of(item), key -> new ArrayList<>()).add(i);
+            }
+        }
+        // Pour each group's last stacks into its first ones
+        for (List<Integer> slots : partials.values()) {
+            int max = Math.min(contents[slots.get(0)].getMaxStackSize(), maxStackSize);
+            int left = 0;
+            int right = slots.size() - 1;
+            while (left < right) {
+                int target = slots.get(left);
+                int source = slots.get(right);
+                if (amounts[target] >= max) {
+                    left++;
+                }
+                else if (amounts[source] == 0) {
+                    right--;
+                }
+                else {
+                    int moved = Math.min(max - amounts[target], amounts[source]);
+                    amounts[target] += moved;
+                    amounts[source] -= moved;
+                }
+            }
+        }
+        ItemStack[] result = new ItemStack[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            ItemStack item = contents[i];
+            if (!ItemAPI.isValidItem(item) || amounts[i] == item.getAmount()) {
+                result[i] = item;
+            }
+            else if (amounts[i] > 0) {
+                result[i] = item.clone();
+                result[i].setAmount(amounts[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sorts an inventory by material, durability and then meta, merging partial stacks first.
+     * Only the slots that change are written, see InventorySorter
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Returns how many slots were written.
+     * Returns zero if the inventory is not valid.
+     * */
+    public static int sortInventory(final Inventory inventory) {
+        return InventorySorter.sort(inventory);
+    }
+
     /**
      * Swaps the contents of two inventories.
+     * Inventories of the same size keep their layouts, slot for slot. Otherwise each inventory's items are
+     * moved to the front first, so they fit into the other inventory's slots.
      * Throws if either inventory is null.
      * Throws if either inventory has no space for the other inventory's items.
+     * Throws if either inventory holds reserved items that would be swapped away, see InventoryEscrow
      * Items that do not fulfill the requirements of isValidItem() are replaced with null.
      * */
     public static void swapInventoryContents(final Inventory inventory1, final Inventory inventory2) throws InvalidParameterException, NotEnoughSpaceException {
@@ -77,23 +268,67 @@ public class InventoryAPI {
         if (inventory2 == null) {
             throw new InvalidParameterException("Cannot swap contents, inventory2 is null.");
         }
-        ItemStack[] contents1 = Arrays.stream(inventory1.getContents()).filter(ItemAPI::isValidItem).toArray(ItemStack[]::new);
-        ItemStack[] contents2 = Arrays.stream(inventory2.getContents()).filter(ItemAPI::isValidItem).toArray(ItemStack[]::new);
-        if (contents1.length > inventory2.getSize()) {
+        ItemStack[] contents1 = inventory1.getContents();
+        ItemStack[] contents2 = inventory2.getContents();
+        if (countValidItems(contents1) > contents2.length) {
             throw new NotEnoughSpaceException("Cannot swap contents, inventory2 doesn't have enough space for inventory1's items.");
         }
-        if (contents2.length > inventory1.getSize()) {
+        if (countValidItems(contents2) > contents1.length) {
             throw new NotEnoughSpaceException("Cannot swap contents, inventory1 doesn't have enough space for inventory2's items.");
         }
-        inventory1.clear();
-        inventory2.clear();
-        inventory1.setContents(contents2);
-        inventory2.setContents(contents1);
+        // Each inventory ends up with the other's items, and those must still hold everything reserved in it
+        if (!InventoryEscrow.coversReservations(inventory1, contents2) || !InventoryEscrow.coversReservations(inventory2, contents1)) {
+            throw new InvalidParameterException("Cannot swap contents, reserved items would be swapped away.");
+        }
+        if (contents1.length != contents2.length) {
+            compactSlots(contents1);
+            compactSlots(contents2);
+        }
+        int size = Math.max(contents1.length, contents2.length);
+        for (int slot = 0; slot < size; slot++) {
+            ItemStack raw1 = slot < contents1.length ? contents1[slot] : null;
+            ItemStack raw2 = slot < contents2.length ? contents2[slot] : null;
+            // Only slots that are truly null on both sides can be skipped, an invalid stack such as air still has to be cleared
+            if (raw1 == null && raw2 == null) {
+                continue;
+            }
+            ItemStack item1 = ItemAPI.isValidItem(raw1) ? raw1 : null;
+            ItemStack item2 = ItemAPI.isValidItem(raw2) ? raw2 : null;
+            if (slot < contents1.length) {
+                inventory1.setItem(slot, item2);
+            }
+            if (slot < contents2.length) {
+                inventory2.setItem(slot, item1);
+            }
+        }
+        InventoryVersions.touch(inventory1);
+        InventoryVersions.touch(inventory2);
+    }
+
+    private static int countValidItems(final ItemStack[] contents) {
+        int count = 0;
+        for (ItemStack item : contents) {
+            if (ItemAPI.isValidItem(item)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void compactSlots(final ItemStack[] contents) {
+        int next = 0;
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (ItemAPI.isValidItem(contents[slot])) {
+                contents[next++] = contents[slot];
+            }
+        }
+        Arrays.fill(contents, next, contents.length, null);
     }
 
     /**
      * Checks whether an inventory has the required amount of a specific item.
      * The amount on the given item stack is ignored, please use the amount parameter.
+     * Items reserved with InventoryEscrow don't count, as they're already promised elsewhere.
      * Returns false if the inventory not valid.
      * Returns false if the item is not valid.
      * Returns false if the amount is zero or below.
@@ -106,11 +341,12 @@ public class InventoryAPI {
         if (!ItemAPI.isValidItem(item)) {
             return false;
         }
+        int required = amount + InventoryEscrow.getReserved(inventory, item);
         int count = 0;
         for (ItemStack currentItem : inventory.getContents()) {
             if (ItemAPI.isSimilarItem(currentItem, item)) {
                 count += currentItem.getAmount();
-                if (count >= amount) {
+                if (count >= required) {
                     return true;
                 }
             }
@@ -118,95 +354,237 @@ public class InventoryAPI {
         return false;
     }
 
+    /**
+     * Counts how many of each item an inventory holds, in a single pass.
+     * Returns empty counts if the inventory is not valid.
+     * */
+    public static ItemCounts countItems(final Inventory inventory) {
+        if (!isValidInventory(inventory)) {
+            return new ItemCounts();
+        }
+        return ItemCounts.of(inventory.getContents());
+    }
+
+    /**
+     * Counts how many of each item a set of items holds, in a single pass.
+     * Returns empty counts if the inventory is null.
+     * */
+    public static ItemCounts countItems(final ItemStack[] inventory) {
+        return ItemCounts.of(inventory);
+    }
+
+    /**
+     * Plans the removal of an item stack from an inventory in a single scan, without changing it.
+     * The returned plan can then be committed, see RemovalPlan
+     * Throws if the inventory is not valid.
+     * Throws if the item is not valid.
+     * Throws if the inventory does not have the required amount of the item.
+     * */
+    public static RemovalPlan planRemoval(final Inventory inventory, final ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        return RemovalPlan.create(inventory, item);
+    }
+
+    /**
+     * Plans the removal of several item stacks from an inventory in a single scan, without changing it.
+     * See planRemoval(Inventory, ItemStack)
+     * Throws if the items are null, empty, or contain an invalid item.
+     * */
+    public static RemovalPlan planRemoval(final Inventory inventory, final ItemStack... items) throws InvalidParameterException, FailedTransactionException {
+        return RemovalPlan.create(inventory, items);
+    }
+
+    /**
+     * Safely removes several item stacks from an inventory at once.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Similar items are combined and the inventory is scanned only once, either every item is removed or none are.
+     * Throws if the inventory is not valid.
+     * Throws if the items are null, empty, or contain an invalid item.
+     * Throws if the inventory does not have the required amount of every item.
+     * */
+    public static void removeItems(final Inventory inventory, final ItemStack... items) throws InvalidParameterException, FailedTransactionException {
+        planRemoval(inventory, items).commit();
+    }
+
+    /**
+     * Finds every slot holding an item that matches, in slot order.
+     * Returns an empty array if the inventory is not valid or the matcher is null.
+     * */
+    public static int[] findItems(final Inventory inventory, final ItemMatcher matcher) {
+        if (!isValidInventory(inventory) || matcher == null) {
+            return new int[0];
+        }
+        ItemStack[] contents = inventory.getContents();
+        int[] slots = new int[contents.length];
+        int found = 0;
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (matcher.test(contents[slot])) {
+                slots[found++] = slot;
+            }
+        }
+        return Arrays.copyOf(slots, found);
+    }
+
+    /**
+     * Counts the total amount of every item that matches.
+     * Returns zero if the inventory is not valid or the matcher is null.
+     * */
+    public static int countItems(final Inventory inventory, final ItemMatcher matcher) {
+        if (!isValidInventory(inventory) || matcher == null) {
+            return 0;
+        }
+        int count = 0;
+        for (ItemStack currentItem : inventory.getContents()) {
+            if (matcher.test(currentItem)) {
+                count += currentItem.getAmount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Plans the removal of an amount of any items that match in a single scan, without changing the inventory.
+     * The returned plan can then be committed, see RemovalPlan
+     * Throws if the inventory is not valid.
+     * Throws if the matcher is null.
+     * Throws if the amount is zero or below.
+     * Throws if the inventory does not have the required amount of matching items.
+     * */
+    public static RemovalPlan planRemoval(final Inventory inventory, final ItemMatcher matcher, final int amount) throws InvalidParameterException, FailedTransactionException {
+        return RemovalPlan.create(inventory, matcher, amount);
+    }
+
+    /**
+     * Safely removes an amount of any items that match, taking from the first matching slots.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * The inventory is scanned once to plan the removal, and is only changed once the removal is proven possible.
+     * Throws if the inventory is not valid.
+     * Throws if the matcher is null.
+     * Throws if the amount is zero or below.
+     * Throws if the inventory does not have the required amount of matching items.
+     * */
+    public static void removeItems(final Inventory inventory, final ItemMatcher matcher, final int amount) throws InvalidParameterException, FailedTransactionException {
+        planRemoval(inventory, matcher, amount).commit();
+    }
+
+    /**
+     * Safely removes an amount of any items that match, recording every slot it changes to a journal.
+     * See removeItems(Inventory, ItemMatcher, int)
+     * */
+    public static void removeItems(final Inventory inventory, final ItemMatcher matcher, final int amount, final TransactionJournal journal) throws InvalidParameterException, FailedTransactionException {
+        planRemoval(inventory, matcher, amount).commit(journal);
+    }
+
     /**
      * Safely removes an item stack from an inventory.
      * It is recommended that this function be called from a synchronous scheduler.
-     * The inventory will be restored to its previous state if an error occurs.
-     * @throws NullPointerException If
-     *
+     * The inventory is scanned once to plan the removal, and is only changed once the removal is proven possible.
      * Throws if the inventory is not valid.
      * Throws if the item is not valid.
      * Throws if the inventory does not have the required amount of the item.
-     * Throws if was unable to remove the required amount of the item.
      * */
     public static void removeItemFromInventory(final Inventory inventory, final ItemStack item) throws InvalidParameterException, FailedTransactionException {
-        if (!isValidInventory(inventory)) {
-            throw new InvalidParameterException("Cannot remove item from an invalid inventory.");
+        planRemoval(inventory, item).commit();
+    }
+
+    /**
+     * Safely removes an item stack from an inventory, recording every slot it changes to a journal.
+     * See removeItemFromInventory()
+     * */
+    public static void removeItemFromInventory(final Inventory inventory, final ItemStack item, final TransactionJournal journal) throws InvalidParameterException, FailedTransactionException {
+        planRemoval(inventory, item).commit(journal);
+    }
+
+    /**
+     * Checks whether items would all fit into an inventory, without changing or cloning anything.
+     * Returns false if the inventory is not valid.
+     * Returns false if the items are null, empty, or contain an invalid item.
+     * */
+    public static boolean canFit(final Inventory inventory, final ItemStack... items) {
+        if (!isValidInventory(inventory) || !ItemAPI.isValidItemSet(items)) {
+            return false;
         }
-        if (!ItemAPI.isValidItem(item)) {
-            throw new InvalidParameterException("Cannot remove an invalid item from an inventory.");
-        }
-        if (!hasRequiredItem(inventory, item, item.getAmount())) {
-            throw new FailedTransactionException("That inventory does not have the amount of times to remove.");
-        }
-        ItemStack[] savedInventory = duplicateInventory(inventory.getContents());
-        try {
-            int remaining = item.getAmount();
-            for (int i = 0; i < inventory.getSize(); i++) {
-                ItemStack currentItem = inventory.getItem(i);
-                if (ItemAPI.isSimilarItem(currentItem, item)) {
-                    int currentItemAmount = currentItem.getAmount();
-                    // If this item can satisfy the remaining amount with some left over
-                    // then lower the amount of that item and break out of the loop
-                    if (currentItemAmount > remaining) {
-                        currentItem.setAmount(currentItemAmount - remaining);
-                        remaining = 0;
-                        break;
-                    }
-                    // If this item can satisfy the remaining amount exactly
-                    // then remove the item from the inventory and break out of the loop
-                    else if (currentItemAmount == remaining) {
-                        inventory.setItem(i, null);
-                        remaining = 0;
-                        break;
-                    }
-                    // Otherwise this item still leaves some remaining, so
-                    // remove the item from the inventory and reduce the remaining
-                    else {
-                        inventory.setItem(i, null);
-                        remaining -= currentItemAmount;
-                    }
-                }
-            }
-            if (remaining != 0) {
-                throw new FailedTransactionException("Was not able to remove the exact amount of that item!");
+        int[] fittable = getFittableAmounts(inventory.getStorageContents(), inventory.getMaxStackSize(), items);
+        for (int i = 0; i < items.length; i++) {
+            if (fittable[i] < items[i].getAmount()) {
+                return false;
             }
         }
-        catch (FailedTransactionException exception) {
-            // Restore the inventory to its previous state
-            inventory.setContents(savedInventory);
-            throw exception;
+        return true;
+    }
+
+    /**
+     * Works out how much of each item would fit into an inventory, without changing or cloning anything.
+     * See getFittableAmounts(ItemStack[], int, ItemStack...)
+     * Returns an empty array if the inventory is not valid.
+     * */
+    public static int[] getFittableAmounts(final Inventory inventory, final ItemStack... items) {
+        if (!isValidInventory(inventory)) {
+            return new int[0];
+        }
+        return getFittableAmounts(inventory.getStorageContents(), inventory.getMaxStackSize(), items);
+    }
+
+    /**
+     * Works out how much of each item would fit into a set of slots, without changing or cloning anything.
+     * Items are placed in the order given, the same way addItemToInventory() would place them, topping up
+     * similar partial stacks before filling empty slots, so earlier items can take space from later ones.
+     * The result matches the order of the items. Invalid items are given zero.
+     * See ItemPlacement
+     * Returns an empty array if the contents or items are null.
+     * */
+    public static int[] getFittableAmounts(final ItemStack[] contents, final int maxStackSize, final ItemStack... items) {
+        if (contents == null || items == null) {
+            return new int[0];
         }
+        return ItemPlacement.plan(contents, maxStackSize, items).getPlacedAmounts();
     }
 
     /**
      * Safely adds an item to an inventory.
      * It is recommended that this function be called from a synchronous scheduler.
-     * The inventory will be restored to its previous state if an error occurs.
+     * The inventory is only changed once the item is known to fit, see canFit()
      * Throws if the inventory is not valid.
      * Throws if the item is not valid.
      * Throws if there isn't enough room to add the item in its entirety.
      * */
     public static void addItemToInventory(final Inventory inventory, final ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        addItemToInventory(inventory, item, null);
+    }
+
+    /**
+     * Adds an item to an inventory, recording every slot it changes to a journal.
+     * Similar items are topped up first, then empty slots are filled, the same as Inventory.addItem()
+     * The placement is planned in full first, so nothing is written if the item doesn't fit, see ItemPlacement
+     * The journal may be null if nothing needs recording.
+     * Throws if the inventory is not valid.
+     * Throws if the item is not valid.
+     * Throws if there isn't enough room to add the item in its entirety.
+     * */
+    public static void addItemToInventory(final Inventory inventory, final ItemStack item, final TransactionJournal journal) throws InvalidParameterException, FailedTransactionException {
         if (!isValidInventory(inventory)) {
             throw new InvalidParameterException("Cannot add item from an invalid inventory.");
         }
         if (!ItemAPI.isValidItem(item)) {
             throw new InvalidParameterException("Cannot add an invalid item from an inventory.");
         }
-        ItemStack[] savedInventory = duplicateInventory(inventory.getContents());
-        Map<Integer, ItemStack> remaining = inventory.addItem(item);
-        if (!remaining.isEmpty()) {
-            // Restore the inventory to its previous state
-            inventory.setContents(savedInventory);
+        ItemPlacement placement = ItemPlacement.plan(inventory.getStorageContents(), inventory.getMaxStackSize(), item);
+        if (!placement.isComplete()) {
             throw new FailedTransactionException("Was unable to put that item in that inventory.");
         }
+        for (int slot : placement.getChangedSlots()) {
+            if (journal != null) {
+                journal.record(inventory, slot);
+            }
+            inventory.setItem(slot, placement.getResult(slot));
+        }
+        InventoryVersions.touch(inventory);
     }
 
     /**
      * Performs a transaction between two inventories.
      * It is recommended that this function be called from a synchronous scheduler.
-     * Both inventories will be restored to their previous states if an error occurs.
+     * Only the slots that were changed will be restored if an error occurs.
+     * For transactions between more than two inventories, see InventoryTransaction
      * Items in item1 will be moved from inventory1 to inventory2.
      * Items in item2 will be moved from inventory2 to inventory1.
      * Throws if either inventory is invalid.
@@ -232,31 +610,49 @@ public class InventoryAPI {
         if (!ItemAPI.isValidItemSet(items2)) {
             throw new InvalidParameterException("Cannot perform transaction, items2 contains an invalid item!");
         }
-        ItemStack[] savedInventory1 = duplicateInventory(inventory1.getContents());
-        ItemStack[] savedInventory2 = duplicateInventory(inventory2.getContents());
-        try {
-            // Remove items1 from inventory1
-            for (ItemStack item : items1) {
-                removeItemFromInventory(inventory1, item);
-            }
-            // Remove items2 from inventory2
-            for (ItemStack item : items2) {
-                removeItemFromInventory(inventory2, item);
-            }
-            // Add items2 to inventory1
-            for (ItemStack item : items2) {
-                addItemToInventory(inventory1, item);
-            }
-            // Add items1 to inventory2
-            for (ItemStack item : items1) {
-                addItemToInventory(inventory2, item);
-            }
+        new InventoryTransaction()
+                .transfer(inventory1, inventory2, items1)
+                .transfer(inventory2, inventory1, items2)
+                .commit();
+    }
+
+    /**
+     * Removes an item stack from an inventory, but only if the inventory hasn't changed since it was stamped.
+     * See InventoryVersions.stamp() and removeItemFromInventory()
+     * Throws if the inventory has changed since it was stamped.
+     * */
+    public static void compareAndRemove(final Inventory inventory, final long stamp, final ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        checkStamp(inventory, stamp);
+        removeItemFromInventory(inventory, item);
+    }
+
+    /**
+     * Adds an item to an inventory, but only if the inventory hasn't changed since it was stamped.
+     * See InventoryVersions.stamp() and addItemToInventory()
+     * Throws if the inventory has changed since it was stamped.
+     * */
+    public static void compareAndAdd(final Inventory inventory, final long stamp, final ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        checkStamp(inventory, stamp);
+        addItemToInventory(inventory, item);
+    }
+
+    /**
+     * Performs a transaction between two inventories, but only if neither has changed since they were stamped.
+     * See InventoryVersions.stamp() and inventoryTransaction()
+     * Throws if either inventory has changed since it was stamped.
+     * */
+    public static void compareAndTransaction(final Inventory inventory1, final long stamp1, final ItemStack[] items1, final Inventory inventory2, final long stamp2, final ItemStack[] items2) throws InvalidParameterException, FailedTransactionException {
+        checkStamp(inventory1, stamp1);
+        checkStamp(inventory2, stamp2);
+        inventoryTransaction(inventory1, items1, inventory2, items2);
+    }
+
+    private static void checkStamp(final Inventory inventory, final long stamp) throws InvalidParameterException, FailedTransactionException {
+        if (!isValidInventory(inventory)) {
+            throw new InvalidParameterException("Cannot perform transaction, an inventory is invalid.");
         }
-        catch (FailedTransactionException exception) {
-            // Restore the inventory to its previous state
-            inventory1.setContents(savedInventory1);
-            inventory2.setContents(savedInventory2);
-            throw exception;
+        if (!InventoryVersions.isCurrent(inventory, stamp)) {
+            throw new FailedTransactionException("That inventory has changed since it was stamped.");
         }
     }
 
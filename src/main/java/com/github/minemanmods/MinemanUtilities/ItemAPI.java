@@ -3,6 +3,7 @@ package com.github.minemanmods.MinemanUtilities;
 import com.google.common.collect.Lists;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
+import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftItemStack;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
@@ -80,12 +81,65 @@ public class ItemAPI {
         if (item1 == item2) {
             return true;
         }
-        if (item1.hasItemMeta() != item2.hasItemMeta()) {
+        boolean hasMeta = hasItemMeta(item1);
+        if (hasMeta != hasItemMeta(item2)) {
             return false;
         }
-        ItemMeta meta1 = item1.getItemMeta();
-        ItemMeta meta2 = item2.getItemMeta();
-        return Bukkit.getItemFactory().equals(meta1, meta2);
+        // Neither has meta, so there's no need to compare the metas at all
+        if (!hasMeta) {
+            return true;
+        }
+        // Items backed by Minecraft compare their tags in place, only plain Bukkit items clone their metas
+        return item1.isSimilar(item2);
+    }
+
+    /**
+     * Checks whether an item has meta.
+     * This also works without a running server, such as in offline simulations with VirtualInventory,
+     * where plain Bukkit items can't have been given meta, as giving them any needs the server's item factory.
+     * Returns false if the item is null.
+     * */
+    public static boolean hasItemMeta(final ItemStack item) {
+        if (item == null) {
+            return false;
+        }
+        // Plain Bukkit items ask the server's item factory, items backed by Minecraft check their own tag
+        if (Bukkit.getServer() == null && !(item instanceof CraftItemStack)) {
+            return false;
+        }
+        return item.hasItemMeta();
+    }
+
+    /**
+     * Packs an item's material and durability into a single key.
+     * Two items that pass the isSameMaterial() check will always have the same key.
+     * Returns zero if the item is null.
+     * */
+    public static int getMaterialKey(final ItemStack item) {
+        return item == null ? 0 : getMaterialKey(item.getType(), item.getDurability());
+    }
+
+    /**
+     * Packs a material and durability into a single key.
+     * Returns zero if the material is null.
+     * */
+    @SuppressWarnings("deprecation")
+    public static int getMaterialKey(final Material material, final short durability) {
+        return material == null ? 0 : (material.getId() << 16) | (durability & 0xFFFF);
+    }
+
+    /**
+     * Gets a hash of an item's meta, ignoring the item's material and amount.
+     * Two items that pass the isSimilarItem() check will always have the same meta hash.
+     * Returns zero if the item is null.
+     * Returns zero if the item has no meta.
+     * */
+    public static int getMetaHash(final ItemStack item) {
+        if (!hasItemMeta(item)) {
+            return 0;
+        }
+        ItemMeta meta = item.getItemMeta();
+        return meta == null ? 0 : meta.hashCode();
     }
 
     /**
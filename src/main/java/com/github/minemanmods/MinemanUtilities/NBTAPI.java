@@ -3,17 +3,26 @@ package com.github.minemanmods.MinemanUtilities;
 import com.github.minemanmods.MinemanUtilities.interfaces.Serialisable;
 import com.github.minemanmods.MinemanUtilities.interfaces.Validation;
 import com.github.minemanmods.MinemanUtilities.nbt.NBTCompound;
+import net.minecraft.server.v1_12_R1.NBTTagCompound;
 import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftItemStack;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 public class NBTAPI {
 
+    private static final Field CRAFT_HANDLE = getCraftHandleField();
+
     /**
      * Gets a copy of the NBT data on an item.
      * * Note that changes to the returned item will NOT be reflected, you must set it manually.
@@ -45,6 +54,79 @@ public class NBTAPI {
         return null;
     }
 
+    /**
+     * Gets the raw NBT tag of an item without copying the item where possible.
+     * Returns null if the item is null.
+     * Returns null if the item has no tag.
+     * * Note that the returned tag may be the item's live tag, it must be treated as read only.
+     * */
+    public static NBTTagCompound getRawTag(ItemStack item) {
+        if (item == null) {
+            return null;
+        }
+        if (CRAFT_HANDLE != null && item instanceof CraftItemStack) {
+            try {
+                net.minecraft.server.v1_12_R1.ItemStack handle = (net.minecraft.server.v1_12_R1.ItemStack) CRAFT_HANDLE.get(item);
+                return handle == null ? null : handle.getTag();
+            }
+            catch (IllegalAccessException ignored) {
+                // Fall through to copying the item
+            }
+        }
+        // Plain items without meta have no tag, so there's nothing worth copying them for
+        if (!(item instanceof CraftItemStack) && !ItemAPI.hasItemMeta(item)) {
+            return null;
+        }
+        return CraftItemStack.asNMSCopy(item).getTag();
+    }
+
+    /**
+     * Scans an inventory for items that have NBT compounds set to any of the given keys.
+     * See scanKeys(ItemStack[], Collection)
+     * Returns an empty map if the inventory is null.
+     * */
+    public static Map<String, BitSet> scanKeys(Inventory inventory, Collection<String> keys) {
+        if (inventory == null) {
+            return new LinkedHashMap<>();
+        }
+        return scanKeys(inventory.getContents(), keys);
+    }
+
+    /**
+     * Scans a set of items for NBT compounds set to any of the given keys, as per getNBT()
+     * The result maps each key to a bitmap of the slots whose item has that key.
+     * Tags are read in place, items are not copied.
+     * Returns an empty map if the items are null.
+     * Returns an empty map if the keys are null or empty.
+     * Null or empty keys are skipped.
+     * */
+    public static Map<String, BitSet> scanKeys(ItemStack[] items, Collection<String> keys) {
+        Map<String, BitSet> result = new LinkedHashMap<>();
+        if (items == null || !Validate.isValid(keys)) {
+            return result;
+        }
+        for (String key : keys) {
+            if (Validate.isValid(key)) {
+                result.put(key, new BitSet(items.length));
+            }
+        }
+        if (result.isEmpty()) {
+            return result;
+        }
+        for (int slot = 0; slot < items.length; slot++) {
+            NBTTagCompound tag = getRawTag(items[slot]);
+            if (tag == null) {
+                continue;
+            }
+            for (Map.Entry<String, BitSet> entry : result.entrySet()) {
+                if (tag.hasKeyOfType(entry.getKey(), 10)) {
+                    entry.getValue().set(slot);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Maps a list of serialisable items into a list of compounds by going through and serialising each item.
      * Returns an empty list if the given list is null or empty;
@@ -151,4 +233,15 @@ public class NBTAPI {
         }
     }
 
+    private static Field getCraftHandleField() {
+        try {
+            Field field = CraftItemStack.class.getDeclaredField("handle");
+            field.setAccessible(true);
+            return field;
+        }
+        catch (NoSuchFieldException | SecurityException exception) {
+            return null;
+        }
+    }
+
 }
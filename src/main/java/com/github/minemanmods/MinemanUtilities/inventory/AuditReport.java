@@ -0,0 +1,199 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The merged result of an InventoryAudit, with totals across every container and a breakdown per container.
+ * Items are keyed by getKey(), which packs an item's material key and tag hash into a long.
+ * */
+public class AuditReport {
+
+    private final Map<Long, Long> totals = new HashMap<>();
+    private final List<ContainerReport> containers = new ArrayList<>();
+    private long itemTotal;
+    private long fingerprint;
+
+    /**
+     * Packs a material key and tag hash into a single key, see ItemAPI.getMaterialKey()
+     * */
+    public static long getKey(int materialKey, int tagHash) {
+        return ((long) materialKey << 32) | (tagHash & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the key of an item, see getKey(int, int)
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Returns zero if the item is not valid.
+     * */
+    public static long getKey(ItemStack item) {
+        if (!ItemAPI.isValidItem(item)) {
+            return 0;
+        }
+        return getKey(ItemAPI.getMaterialKey(item), InventoryFingerprint.getTagHash(item));
+    }
+
+    /**
+     * Gets the total amount of an item across every container, ignoring the item's own amount.
+     * Returns zero if the item is not valid.
+     * */
+    public long getTotal(ItemStack item) {
+        return this.totals.getOrDefault(getKey(item), 0L);
+    }
+
+    /**
+     * Gets the total amount of a plain material and durability, without any tag, across every container.
+     * */
+    public long getTotal(Material material, short durability) {
+        return this.totals.getOrDefault(getKey(ItemAPI.getMaterialKey(material, durability), 0), 0L);
+    }
+
+    /**
+     * Gets the total amount of every item by key, see getKey()
+     * */
+    public Map<Long, Long> getTotals() {
+        return Collections.unmodifiableMap(this.totals);
+    }
+
+    /**
+     * Gets the total amount of every item in every container.
+     * */
+    public long getItemTotal() {
+        return this.itemTotal;
+    }
+
+    /**
+     * Gets a fingerprint of every container's contents, which changes if any slot of any container changes.
+     * Each container's fingerprint is mixed with its position in the audit before they are added together,
+     * so identical containers don't cancel each other out and swapping two containers' contents is noticed.
+     * */
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    /**
+     * Gets the breakdown of every container, in the order they were added to the audit.
+     * */
+    public List<ContainerReport> getContainers() {
+        return Collections.unmodifiableList(this.containers);
+    }
+
+    void addContainer(ContainerReport container) {
+        this.containers.add(container);
+        addTotals(container.totals);
+        this.itemTotal += container.itemTotal;
+        this.fingerprint += InventoryFingerprint.mix(container.fingerprint + 0x9E3779B97F4A7C15L * (container.index + 1));
+    }
+
+    void merge(AuditReport other) {
+        this.containers.addAll(other.containers);
+        addTotals(other.totals);
+        this.itemTotal += other.itemTotal;
+        // Each container was already mixed with its position when it was added, so sums can simply be added
+        this.fingerprint += other.fingerprint;
+    }
+
+    private void addTotals(Map<Long, Long> other) {
+        for (Map.Entry<Long, Long> entry : other.entrySet()) {
+            this.totals.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+    }
+
+    /**
+     * The breakdown of a single container in an audit.
+     * */
+    public static class ContainerReport {
+
+        private final int index;
+        private final Inventory inventory;
+        private final int size;
+        private final Map<Long, Long> totals = new HashMap<>();
+        private long itemTotal;
+        private long fingerprint;
+        private int usedSlots;
+
+        ContainerReport(int index, Inventory inventory, int size) {
+            this.index = index;
+            this.inventory = inventory;
+            this.size = size;
+        }
+
+        void add(int slot, int materialKey, int amount, int tagHash) {
+            long key = getKey(materialKey, tagHash);
+            this.totals.merge(key, (long) amount, Long::sum);
+            this.itemTotal += amount;
+            this.usedSlots++;
+            this.fingerprint ^= InventoryFingerprint.hashSlot(slot, materialKey, amount, tagHash);
+        }
+
+        /**
+         * Gets the position this container was added to the audit in.
+         * */
+        public int getIndex() {
+            return this.index;
+        }
+
+        /**
+         * Gets the audited inventory.
+         * Its contents may have changed since the audit, and it must only be used from a synchronous scheduler.
+         * */
+        public Inventory getInventory() {
+            return this.inventory;
+        }
+
+        /**
+         * Gets how many slots the container had.
+         * */
+        public int getSize() {
+            return this.size;
+        }
+
+        /**
+         * Gets how many slots held an item.
+         * */
+        public int getUsedSlots() {
+            return this.usedSlots;
+        }
+
+        /**
+         * Gets the total amount of an item in this container, ignoring the item's own amount.
+         * Returns zero if the item is not valid.
+         * */
+        public long getTotal(ItemStack item) {
+            return this.totals.getOrDefault(getKey(item), 0L);
+        }
+
+        /**
+         * Gets the total amount of every item in this container by key, see AuditReport.getKey()
+         * */
+        public Map<Long, Long> getTotals() {
+            return Collections.unmodifiableMap(this.totals);
+        }
+
+        /**
+         * Gets the total amount of every item in this container.
+         * */
+        public long getItemTotal() {
+            return this.itemTotal;
+        }
+
+        /**
+         * Gets a fingerprint of this container's contents, slot by slot.
+         * Two containers with the same fingerprint almost certainly held the same items in the same slots.
+         * This is the same value InventoryFingerprint gives for the contents at the time of the audit.
+         * */
+        public long getFingerprint() {
+            return this.fingerprint;
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Totals every item across many inventories, such as every loaded container for an anti-dupe check.
+ * Inventories are snapshotted on the main thread with add(), which only copies each item's material key,
+ * amount and tag hash into primitive arrays. Tags are hashed in place, so no items are copied.
+ * The snapshots are then aggregated on a fork-join pool by run(), off the main thread if wanted.
+ *
+ * Item tags can only be read safely on the main thread, so add() does the expensive part of an audit, reading
+ * every slot and hashing every tag, and that work is not parallel. run() only totals and fingerprints the
+ * primitive arrays, which is cheap, so splitting it across threads only pays off with a great many containers.
+ * The gain is in keeping that aggregation, and the maps it builds, off the main thread, not in a faster audit.
+ *
+ * Items are told apart by material, durability and a hash of their tag, so two different tags
+ * sharing a hash are counted together. This is fine for totals but not for exact comparisons.
+ * Audits are not thread safe while inventories are being added.
+ * */
+public class InventoryAudit {
+
+    /**
+     * How many containers each fork-join task aggregates directly before splitting.
+     * */
+    private static final int THRESHOLD = 16;
+
+    private final List<Snapshot> snapshots = new ArrayList<>();
+
+    /**
+     * Snapshots an inventory's contents.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Does nothing if the inventory is not valid.
+     * */
+    public InventoryAudit add(final Inventory inventory) {
+        if (InventoryAPI.isValidInventory(inventory)) {
+            this.snapshots.add(new Snapshot(this.snapshots.size(), inventory, inventory.getContents()));
+        }
+        return this;
+    }
+
+    /**
+     * Snapshots every inventory's contents.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Does nothing if the inventories are null, invalid inventories are skipped.
+     * */
+    public InventoryAudit addAll(final Collection<? extends Inventory> inventories) {
+        if (inventories != null) {
+            for (Inventory inventory : inventories) {
+                add(inventory);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gets how many inventories have been snapshotted.
+     * */
+    public int size() {
+        return this.snapshots.size();
+    }
+
+    /**
+     * Aggregates every snapshot on the common fork-join pool, see run(ForkJoinPool)
+     * */
+    public AuditReport run() {
+        return run(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Aggregates every snapshot in parallel and merges the results into one report.
+     * This never touches the inventories, so it can be called from any thread.
+     * The snapshots were already read and hashed by add(), so this only does the totalling.
+     * Containers in the report are in the order they were added.
+     * */
+    public AuditReport run(final ForkJoinPool pool) {
+        if (this.snapshots.isEmpty()) {
+            return new AuditReport();
+        }
+        return pool.invoke(new AuditTask(this.snapshots, 0, this.snapshots.size()));
+    }
+
+    /**
+     * Aggregates every snapshot in the background, see run(ForkJoinPool)
+     * */
+    public CompletableFuture<AuditReport> runAsync(final ForkJoinPool pool) {
+        return CompletableFuture.supplyAsync(() -> run(pool), pool);
+    }
+
+    private static class Snapshot {
+
+        private final int index;
+        private final Inventory inventory;
+        private final int size;
+        private final int[] slots;
+        private final int[] keys;
+        private final int[] amounts;
+        private final int[] tagHashes;
+
+        private Snapshot(int index, Inventory inventory, ItemStack[] contents) {
+            this.index = index;
+            this.inventory = inventory;
+            this.size = contents.length;
+            int count = 0;
+            for (ItemStack item : contents) {
+                if (ItemAPI.isValidItem(item)) {
+                    count++;
+                }
+            }
+            this.slots = new int[count];
+            this.keys = new int[count];
+            this.amounts = new int[count];
+            this.tagHashes = new int[count];
+            int i = 0;
+            for (int slot = 0; slot < contents.length; slot++) {
+                ItemStack item = contents[slot];
+                if (ItemAPI.isValidItem(item)) {
+                    this.slots[i] = slot;
+                    this.keys[i] = ItemAPI.getMaterialKey(item);
+                    this.amounts[i] = item.getAmount();
+                    this.tagHashes[i] = InventoryFingerprint.getTagHash(item);
+                    i++;
+                }
+            }
+        }
+
+        private AuditReport.ContainerReport aggregate() {
+            AuditReport.ContainerReport report = new AuditReport.ContainerReport(this.index, this.inventory, this.size);
+            for (int i = 0; i < this.keys.length; i++) {
+                report.add(this.slots[i], this.keys[i], this.amounts[i], this.tagHashes[i]);
+            }
+            return report;
+        }
+
+    }
+
+    private static class AuditTask extends RecursiveTask<AuditReport> {
+
+        private final List<Snapshot> snapshots;
+        private final int start;
+        private final int end;
+
+        private AuditTask(List<Snapshot> snapshots, int start, int end) {
+            this.snapshots = snapshots;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected AuditReport compute() {
+            if (this.end - this.start <= THRESHOLD) {
+                AuditReport report = new AuditReport();
+                for (int i = this.start; i < this.end; i++) {
+                    report.addContainer(this.snapshots.get(i).aggregate());
+                }
+                return report;
+            }
+            int middle = (this.start + this.end) >>> 1;
+            AuditTask left = new AuditTask(this.snapshots, this.start, middle);
+            left.fork();
+            AuditReport right = new AuditTask(this.snapshots, middle, this.end).compute();
+            // Left comes first so that containers stay in the order they were added
+            AuditReport report = left.join();
+            report.merge(right);
+            return report;
+        }
+
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
+import com.google.common.collect.MapMaker;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.security.InvalidParameterException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds items aside for pending trades, such as confirm menus and auctions, without removing them.
+ * Reserved amounts are tracked per container and item in lock-free counters, see InventoryAPI.getContainer(),
+ * so every wrapper of the same chest shares the same reservations.
+ * Committing or releasing a reservation is a single counter update, see Reservation
+ *
+ * Reservations are honoured across the library: InventoryAPI.hasRequiredItem(), every removal in InventoryAPI,
+ * RemovalPlan, InventoryTransaction, InventoryIndex and ShadowInventory all treat reserved items as if they weren't there.
+ * InventoryAPI.applyContents(), and so compaction and sorting, refuses contents that would not hold what's reserved,
+ * and InventoryAPI.swapInventoryContents() refuses to swap reserved items away.
+ * The only exception is a reservation's own commit, which takes the very items it reserved.
+ * Changes made directly through Bukkit, such as Inventory.setItem() or players moving items, can't be stopped,
+ * so a reservation's commit still checks that its items are there.
+ * A counter is removed as soon as it drops back to zero, so items that aren't reserved cost a single lookup.
+ * Containers are held weakly, so reserving from an inventory never keeps it loaded.
+ * */
+public class InventoryEscrow {
+
+    private static final ConcurrentMap<Object, ConcurrentMap<ItemKey, AtomicInteger>> reservations = new MapMaker().weakKeys().makeMap();
+    // The reservation being committed on this thread, whose own items must not count against it
+    private static final ThreadLocal<Reservation> committing = new ThreadLocal<>();
+
+    /**
+     * Reserves an item stack in an inventory.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Throws if the inventory is not valid.
+     * Throws if the item is not valid.
+     * Throws if the inventory does not have enough of the item that isn't already reserved.
+     * */
+    public static Reservation reserve(final Inventory inventory, final ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        if (!InventoryAPI.isValidInventory(inventory)) {
+            throw new InvalidParameterException("Cannot reserve item from an invalid inventory.");
+        }
+        if (!ItemAPI.isValidItem(item)) {
+            throw new InvalidParameterException("Cannot reserve an invalid item from an inventory.");
+        }
+        Object container = InventoryAPI.getContainer(inventory);
+        ItemKey key = ItemKey.of(item);
+        int amount = item.getAmount();
+        ConcurrentMap<ItemKey, AtomicInteger> counters = reservations.computeIfAbsent(container, containerKey -> new ConcurrentHashMap<>());
+        while (true) {
+            AtomicInteger counter = counters.computeIfAbsent(key, itemKey -> new AtomicInteger());
+            int current = counter.get();
+            if (current < 0) {
+                // That counter dropped to zero and is being removed, so help remove it and start a fresh one
+                counters.remove(key, counter);
+                continue;
+            }
+            // Claim first and check afterwards, so two racing reservations can never both succeed
+            if (!counter.compareAndSet(current, current + amount)) {
+                continue;
+            }
+            if (count(inventory, item) < current + amount) {
+                unreserve(container, key, counter, amount);
+                throw new FailedTransactionException("That inventory does not have the amount of unreserved items to reserve.");
+            }
+            return new Reservation(inventory, container, key, amount, counter);
+        }
+    }
+
+    /**
+     * Gets how many of an item are reserved in an inventory, ignoring the item's own amount.
+     * While a reservation is being committed, its own items are left out, so it can take them.
+     * This only reads the counters, so it is cheap enough to call before every removal.
+     * Returns zero if the inventory is null or the item is not valid.
+     * */
+    public static int getReserved(final Inventory inventory, final ItemStack item) {
+        if (inventory == null || !ItemAPI.isValidItem(item)) {
+            return 0;
+        }
+        ConcurrentMap<ItemKey, AtomicInteger> counters = reservations.get(InventoryAPI.getContainer(inventory));
+        if (counters == null || counters.isEmpty()) {
+            return 0;
+        }
+        int materialKey = ItemAPI.getMaterialKey(item);
+        for (Map.Entry<ItemKey, AtomicInteger> entry : counters.entrySet()) {
+            // Keys are equal when their items are similar, so at most one can match
+            if (entry.getKey().getMaterialKey() == materialKey && entry.getKey().matches(item)) {
+                return getReserved(inventory, entry.getKey(), entry.getValue());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets how many items that match are reserved in an inventory, across every reserved item.
+     * While a reservation is being committed, its own items are left out, so it can take them.
+     * Returns zero if the inventory or matcher is null.
+     * */
+    public static int getReserved(final Inventory inventory, final ItemMatcher matcher) {
+        if (inventory == null || matcher == null) {
+            return 0;
+        }
+        ConcurrentMap<ItemKey, AtomicInteger> counters = reservations.get(InventoryAPI.getContainer(inventory));
+        if (counters == null || counters.isEmpty()) {
+            return 0;
+        }
+        int reserved = 0;
+        for (Map.Entry<ItemKey, AtomicInteger> entry : counters.entrySet()) {
+            if (matcher.test(entry.getKey().getItem())) {
+                reserved += getReserved(inventory, entry.getKey(), entry.getValue());
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Gets how many of an item an inventory holds that aren't reserved, ignoring the item's own amount.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Returns zero if the inventory is not valid or the item is not valid.
+     * */
+    public static int getAvailable(final Inventory inventory, final ItemStack item) {
+        if (!InventoryAPI.isValidInventory(inventory) || !ItemAPI.isValidItem(item)) {
+            return 0;
+        }
+        return Math.max(0, count(inventory, item) - getReserved(inventory, item));
+    }
+
+    /**
+     * Checks whether an inventory has the required amount of a specific item that isn't reserved.
+     * This is the same check as InventoryAPI.hasRequiredItem()
+     * */
+    public static boolean hasAvailableItem(final Inventory inventory, final ItemStack item, final int amount) {
+        return getAvailable(inventory, item) >= amount;
+    }
+
+    /**
+     * Checks whether anything is reserved in an inventory at all.
+     * Returns false if the inventory is null.
+     * */
+    public static boolean hasReservations(final Inventory inventory) {
+        if (inventory == null) {
+            return false;
+        }
+        ConcurrentMap<ItemKey, AtomicInteger> counters = reservations.get(InventoryAPI.getContainer(inventory));
+        return counters != null && !counters.isEmpty();
+    }
+
+    /**
+     * Checks whether a set of items would still hold everything reserved in an inventory,
+     * such as before replacing the inventory's contents with them.
+     * Returns true if nothing is reserved in the inventory.
+     * Returns false if the contents are null and something is reserved.
+     * */
+    public static boolean coversReservations(final Inventory inventory, final ItemStack[] contents) {
+        if (inventory == null) {
+            return true;
+        }
+        ConcurrentMap<ItemKey, AtomicInteger> counters = reservations.get(InventoryAPI.getContainer(inventory));
+        if (counters == null || counters.isEmpty()) {
+            return true;
+        }
+        for (Map.Entry<ItemKey, AtomicInteger> entry : counters.entrySet()) {
+            int reserved = getReserved(inventory, entry.getKey(), entry.getValue());
+            if (reserved <= 0) {
+                continue;
+            }
+            if (contents == null) {
+                return false;
+            }
+            int count = 0;
+            for (ItemStack item : contents) {
+                if (entry.getKey().matches(item)) {
+                    count += item.getAmount();
+                }
+            }
+            if (count < reserved) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks a reservation as being committed on this thread, so checks made by its commit leave its items out.
+     * Returns the reservation that was being committed before, to be given back to endCommit().
+     * */
+    static Reservation beginCommit(final Reservation reservation) {
+        Reservation previous = committing.get();
+        committing.set(reservation);
+        return previous;
+    }
+
+    /**
+     * Ends a commit started with beginCommit()
+     * */
+    static void endCommit(final Reservation previous) {
+        if (previous == null) {
+            committing.remove();
+        }
+        else {
+            committing.set(previous);
+        }
+    }
+
+    /**
+     * Gives back an amount of a reserved item.
+     * A counter that drops to zero is retired by setting it below zero, so a racing reserve() can tell
+     * it must not be reused, and is then removed.
+     * */
+    static void unreserve(final Object container, final ItemKey key, final AtomicInteger counter, final int amount) {
+        if (counter.addAndGet(-amount) == 0 && counter.compareAndSet(0, -1)) {
+            ConcurrentMap<ItemKey, AtomicInteger> counters = reservations.get(container);
+            if (counters != null) {
+                counters.remove(key, counter);
+            }
+        }
+    }
+
+    private static int getReserved(final Inventory inventory, final ItemKey key, final AtomicInteger counter) {
+        int reserved = Math.max(0, counter.get());
+        Reservation exempt = committing.get();
+        if (exempt != null && exempt.getContainer() == InventoryAPI.getContainer(inventory) && exempt.getKey().equals(key)) {
+            reserved = Math.max(0, reserved - exempt.getAmount());
+        }
+        return reserved;
+    }
+
+    private static int count(final Inventory inventory, final ItemStack item) {
+        int count = 0;
+        for (ItemStack currentItem : inventory.getContents()) {
+            if (ItemAPI.isSimilarItem(currentItem, item)) {
+                count += currentItem.getAmount();
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.NBTAPI;
+import net.minecraft.server.v1_12_R1.NBTTagCompound;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import javax.validation.constraints.NotNull;
+import java.security.InvalidParameterException;
+
+/**
+ * An incrementally updated hash of an inventory's contents, for cheap change detection and caching.
+ * The fingerprint is the XOR of a hash per slot, where each slot's hash mixes in the slot number,
+ * so changing a slot only takes removing its old hash and adding its new one.
+ *
+ * Like InventoryIndex, changes made through the fingerprint are tracked automatically, and changes made
+ * elsewhere must be reported with update() or rebuild() or the fingerprint will go stale.
+ * It is recommended that this be used from a synchronous scheduler.
+ * */
+public class InventoryFingerprint {
+
+    private final Inventory inventory;
+    private final long[] slotHashes;
+    private long fingerprint;
+
+    public InventoryFingerprint(@NotNull Inventory inventory) {
+        if (!InventoryAPI.isValidInventory(inventory)) {
+            throw new InvalidParameterException("Cannot fingerprint an invalid inventory.");
+        }
+        this.inventory = inventory;
+        this.slotHashes = new long[inventory.getSize()];
+        rebuild();
+    }
+
+    /**
+     * Gets the inventory being fingerprinted.
+     * */
+    public Inventory getInventory() {
+        return this.inventory;
+    }
+
+    /**
+     * Gets the current fingerprint.
+     * Two fingerprints of the same size inventory are equal when every slot holds the same item,
+     * barring a hash collision.
+     * */
+    public long get() {
+        return this.fingerprint;
+    }
+
+    /**
+     * Checks whether the fingerprint differs from one taken earlier with get()
+     * */
+    public boolean hasChanged(long previous) {
+        return this.fingerprint != previous;
+    }
+
+    /**
+     * Rehashes every slot from the inventory's current contents.
+     * Returns true if the fingerprint changed.
+     * */
+    public boolean rebuild() {
+        long previous = this.fingerprint;
+        ItemStack[] contents = this.inventory.getContents();
+        this.fingerprint = 0;
+        for (int slot = 0; slot < this.slotHashes.length; slot++) {
+            this.slotHashes[slot] = hashSlot(slot, slot < contents.length ? contents[slot] : null);
+            this.fingerprint ^= this.slotHashes[slot];
+        }
+        return this.fingerprint != previous;
+    }
+
+    /**
+     * Rehashes a single slot that has been changed outside of the fingerprint.
+     * Returns true if the fingerprint changed.
+     * Returns false if the slot is out of range.
+     * */
+    public boolean update(int slot) {
+        if (slot < 0 || slot >= this.slotHashes.length) {
+            return false;
+        }
+        return replace(slot, hashSlot(slot, this.inventory.getItem(slot)));
+    }
+
+    /**
+     * Sets the item in a slot and updates the fingerprint.
+     * Does nothing if the slot is out of range.
+     * */
+    public void setItem(int slot, ItemStack item) {
+        if (slot >= 0 && slot < this.slotHashes.length) {
+            this.inventory.setItem(slot, item);
+            InventoryVersions.touch(this.inventory);
+            replace(slot, hashSlot(slot, item));
+        }
+    }
+
+    /**
+     * Fingerprints a set of items in one go, the same way an InventoryFingerprint would.
+     * Returns zero if the items are null.
+     * */
+    public static long of(ItemStack[] contents) {
+        long fingerprint = 0;
+        if (contents != null) {
+            for (int slot = 0; slot < contents.length; slot++) {
+                fingerprint ^= hashSlot(slot, contents[slot]);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Hashes the item in a slot, mixing in the slot number so that moving an item changes its hash.
+     * Tags are hashed in place, so the item is never copied.
+     * This is the one slot hash used across the library, by fingerprints, InventoryVersions stamps and InventoryAudit.
+     * Returns zero if the item is not valid, so empty slots never affect the fingerprint.
+     * */
+    public static long hashSlot(int slot, ItemStack item) {
+        if (!ItemAPI.isValidItem(item)) {
+            return 0;
+        }
+        return hashSlot(slot, ItemAPI.getMaterialKey(item), item.getAmount(), getTagHash(item));
+    }
+
+    /**
+     * Hashes a slot from an item's parts, for callers that have already taken the item apart, see hashSlot(int, ItemStack)
+     * The tag hash must come from getTagHash().
+     * */
+    public static long hashSlot(int slot, int materialKey, int amount, int tagHash) {
+        long hash = ((long) materialKey << 32) | (amount & 0xFFFFFFFFL);
+        hash = mix(hash + 0x9E3779B97F4A7C15L * (slot + 1));
+        return mix(hash ^ tagHash);
+    }
+
+    /**
+     * Hashes an item's tag in place, without copying it.
+     * Returns zero if the item has no tag.
+     * */
+    public static int getTagHash(ItemStack item) {
+        NBTTagCompound tag = NBTAPI.getRawTag(item);
+        return tag == null ? 0 : tag.hashCode();
+    }
+
+    private boolean replace(int slot, long hash) {
+        long previous = this.slotHashes[slot];
+        if (previous == hash) {
+            return false;
+        }
+        this.fingerprint ^= previous ^ hash;
+        this.slotHashes[slot] = hash;
+        return true;
+    }
+
+    static long mix(long hash) {
+        // The SplitMix64 finaliser, so that nearby slots and amounts spread across every bit
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import javax.validation.constraints.NotNull;
+import java.security.InvalidParameterException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Indexes an inventory's slots by their material key, see ItemAPI.getMaterialKey()
+ * so that lookups only need to check the slots that could possibly match.
+ *
+ * The index is kept up to date by changes made through it. Changes made elsewhere,
+ * such as by players clicking or other plugins, must be reported with update() or
+ * rebuild() or the index will go stale.
+ * It is recommended that this be used from a synchronous scheduler.
+ * */
+public class InventoryIndex {
+
+    private final Inventory inventory;
+    private final int[] keys;
+    private final Map<Integer, BitSet> slots = new HashMap<>();
+
+    public InventoryIndex(@NotNull Inventory inventory) {
+        if (!InventoryAPI.isValidInventory(inventory)) {
+            throw new InvalidParameterException("Cannot index an invalid inventory.");
+        }
+        this.inventory = inventory;
+        this.keys = new int[inventory.getSize()];
+        rebuild();
+    }
+
+    /**
+     * Gets the inventory being indexed.
+     * */
+    public Inventory getInventory() {
+        return this.inventory;
+    }
+
+    /**
+     * Rebuilds the entire index from the inventory's current contents.
+     * */
+    public void rebuild() {
+        this.slots.clear();
+        ItemStack[] contents = this.inventory.getContents();
+        for (int slot = 0; slot < this.keys.length; slot++) {
+            this.keys[slot] = 0;
+            index(slot, slot < contents.length ? contents[slot] : null);
+        }
+    }
+
+    /**
+     * Updates the index for a single slot that has been changed outside of the index.
+     * Does nothing if the slot is out of range.
+     * */
+    public void update(int slot) {
+        if (slot >= 0 && slot < this.keys.length) {
+            index(slot, this.inventory.getItem(slot));
+        }
+    }
+
+    /**
+     * Sets the item in a slot and updates the index.
+     * Does nothing if the slot is out of range.
+     * */
+    public void setItem(int slot, ItemStack item) {
+        if (slot >= 0 && slot < this.keys.length) {
+            this.inventory.setItem(slot, item);
+            InventoryVersions.touch(this.inventory);
+            index(slot, item);
+        }
+    }
+
+    /**
+     * Gets the slots holding items with the same material as the given item.
+     * These are only candidates, the items may still differ in meta.
+     * Returns an empty array if the item is not valid.
+     * */
+    public int[] getSlots(ItemStack item) {
+        BitSet candidates = getCandidates(item);
+        return candidates == null ? new int[0] : candidates.stream().toArray();
+    }
+
+    /**
+     * Counts how many of an item the inventory holds.
+     * The amount on the given item stack is ignored.
+     * Returns zero if the item is not valid.
+     * */
+    public int count(ItemStack item) {
+        BitSet candidates = getCandidates(item);
+        if (candidates == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+            ItemStack current = this.inventory.getItem(slot);
+            if (ItemAPI.isSimilarItem(current, item)) {
+                count += current.getAmount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the inventory has the required amount of a specific item.
+     * See InventoryAPI.hasRequiredItem()
+     * */
+    public boolean hasRequiredItem(ItemStack item, int amount) {
+        BitSet candidates = getCandidates(item);
+        if (candidates == null) {
+            return false;
+        }
+        int count = 0;
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+            ItemStack current = this.inventory.getItem(slot);
+            if (ItemAPI.isSimilarItem(current, item)) {
+                count += current.getAmount();
+                if (count >= amount) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes an item stack from the inventory, only touching the candidate slots.
+     * See InventoryAPI.removeItemFromInventory()
+     * Throws if the item is not valid.
+     * Throws if the inventory does not have the required amount of the item.
+     * */
+    public void removeItem(ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        if (!ItemAPI.isValidItem(item)) {
+            throw new InvalidParameterException("Cannot remove an invalid item from an inventory.");
+        }
+        // Reserved items must be left behind, see InventoryEscrow
+        if (!hasRequiredItem(item, item.getAmount() + InventoryEscrow.getReserved(this.inventory, item))) {
+            throw new FailedTransactionException("That inventory does not have the amount of items to remove.");
+        }
+        // The check above proves there's enough, so nothing needs to be rolled back
+        BitSet candidates = getCandidates(item);
+        int remaining = item.getAmount();
+        for (int slot = candidates.nextSetBit(0); slot >= 0 && remaining > 0; slot = candidates.nextSetBit(slot + 1)) {
+            ItemStack current = this.inventory.getItem(slot);
+            if (ItemAPI.isSimilarItem(current, item)) {
+                int currentAmount = current.getAmount();
+                if (currentAmount > remaining) {
+                    current.setAmount(currentAmount - remaining);
+                    this.inventory.setItem(slot, current);
+                    InventoryVersions.touch(this.inventory);
+                    remaining = 0;
+                }
+                else {
+                    setItem(slot, null);
+                    remaining -= currentAmount;
+                }
+            }
+        }
+    }
+
+    private BitSet getCandidates(ItemStack item) {
+        if (!ItemAPI.isValidItem(item)) {
+            return null;
+        }
+        return this.slots.get(ItemAPI.getMaterialKey(item));
+    }
+
+    private void index(int slot, ItemStack item) {
+        int previous = this.keys[slot];
+        int next = ItemAPI.isValidItem(item) ? ItemAPI.getMaterialKey(item) : 0;
+        if (previous == next) {
+            return;
+        }
+        if (previous != 0) {
+            BitSet bits = this.slots.get(previous);
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                this.slots.remove(previous);
+            }
+        }
+        if (next != 0) {
+            this.slots.computeIfAbsent(next, key -> new BitSet(this.keys.length)).set(slot);
+        }
+        this.keys[slot] = next;
+    }
+
+}
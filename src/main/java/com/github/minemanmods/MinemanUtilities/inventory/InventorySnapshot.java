@@ -0,0 +1,187 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.NBTAPI;
+import net.minecraft.server.v1_12_R1.NBTCompressedStreamTools;
+import net.minecraft.server.v1_12_R1.NBTReadLimiter;
+import net.minecraft.server.v1_12_R1.NBTTagCompound;
+import org.bukkit.Material;
+import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftItemStack;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.InvalidParameterException;
+
+/**
+ * A compact binary format for whole inventories, as an alternative to YAML serialisation.
+ *
+ * The format is a version byte, the slot count and the amount of items as varints, and then
+ * for each item: its slot as a varint, its material id and durability as shorts, its amount as
+ * a varint, a flag byte, and then its raw NBT only if the flag says it has any. Empty slots take
+ * up no space at all.
+ * */
+public class InventorySnapshot {
+
+    private static final int VERSION = 1;
+    /**
+     * The most slots a snapshot may claim, so a corrupt length can't allocate an enormous array.
+     * */
+    public static final int MAX_SLOTS = 1 << 16;
+    /**
+     * The most bytes of NBT a single item may read, the same limit Minecraft puts on item packets.
+     * */
+    private static final long MAX_TAG_BYTES = 2097152L;
+    private static final int FLAG_TAG = 0x1;
+
+    /**
+     * Encodes a set of items into a snapshot.
+     * Items that do not fulfill the requirements of isValidItem() are treated as empty.
+     * Returns an empty array if the contents are null.
+     * Throws if there are more than MAX_SLOTS slots.
+     * */
+    public static byte[] encode(final ItemStack[] contents) throws InvalidParameterException {
+        if (contents == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + contents.length * 8);
+        try {
+            write(contents, new DataOutputStream(bytes));
+        }
+        catch (IOException exception) {
+            throw new IllegalStateException("Could not encode inventory snapshot into memory.", exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a snapshot back into a set of items.
+     * Returns an empty array if the bytes are null or empty.
+     * Throws if the snapshot is malformed.
+     * */
+    public static ItemStack[] decode(final byte[] bytes) throws IOException {
+        if (bytes == null || bytes.length == 0) {
+            return new ItemStack[0];
+        }
+        return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Writes a set of items as a snapshot.
+     * Item tags are read in place, items are not copied.
+     * Throws if the contents are null.
+     * Throws if there are more than MAX_SLOTS slots.
+     * */
+    @SuppressWarnings("deprecation")
+    public static void write(final ItemStack[] contents, final DataOutput output) throws IOException, InvalidParameterException {
+        if (contents == null) {
+            throw new InvalidParameterException("Cannot snapshot null contents.");
+        }
+        if (contents.length > MAX_SLOTS) {
+            throw new InvalidParameterException("Cannot snapshot more than " + MAX_SLOTS + " slots.");
+        }
+        int count = 0;
+        for (ItemStack item : contents) {
+            if (ItemAPI.isValidItem(item)) {
+                count++;
+            }
+        }
+        output.writeByte(VERSION);
+        writeVarInt(output, contents.length);
+        writeVarInt(output, count);
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack item = contents[slot];
+            if (!ItemAPI.isValidItem(item)) {
+                continue;
+            }
+            NBTTagCompound tag = ItemAPI.hasItemMeta(item) ? NBTAPI.getRawTag(item) : null;
+            writeVarInt(output, slot);
+            output.writeShort(item.getTypeId());
+            output.writeShort(item.getDurability());
+            writeVarInt(output, item.getAmount());
+            output.writeByte(tag == null ? 0 : FLAG_TAG);
+            if (tag != null) {
+                NBTCompressedStreamTools.a(tag, output);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot back into a set of items.
+     * Throws if the snapshot is malformed.
+     * */
+    @SuppressWarnings("deprecation")
+    public static ItemStack[] read(final DataInput input) throws IOException {
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown inventory snapshot version: " + version);
+        }
+        int size = readVarInt(input);
+        if (size < 0 || size > MAX_SLOTS) {
+            throw new IOException("Inventory snapshot slot count out of range: " + size);
+        }
+        ItemStack[] contents = new ItemStack[size];
+        int count = readVarInt(input);
+        if (count < 0 || count > size) {
+            throw new IOException("Inventory snapshot item count out of range: " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = readVarInt(input);
+            if (slot < 0 || slot >= contents.length) {
+                throw new IOException("Inventory snapshot slot out of range: " + slot);
+            }
+            Material material = Material.getMaterial(input.readUnsignedShort());
+            short durability = input.readShort();
+            int amount = readVarInt(input);
+            int flags = input.readUnsignedByte();
+            if (material == null) {
+                throw new IOException("Inventory snapshot has an unknown material in slot: " + slot);
+            }
+            if (amount <= 0) {
+                throw new IOException("Inventory snapshot has an impossible amount in slot: " + slot);
+            }
+            ItemStack item = new ItemStack(material, amount, durability);
+            if ((flags & FLAG_TAG) != 0) {
+                NBTTagCompound tag;
+                try {
+                    tag = NBTCompressedStreamTools.a(input, new NBTReadLimiter(MAX_TAG_BYTES));
+                }
+                catch (RuntimeException exception) {
+                    // The read limiter and malformed tags fail with unchecked exceptions
+                    throw new IOException("Inventory snapshot has a malformed tag in slot: " + slot, exception);
+                }
+                net.minecraft.server.v1_12_R1.ItemStack handle = CraftItemStack.asNMSCopy(item);
+                handle.setTag(tag);
+                item = CraftItemStack.asCraftMirror(handle);
+            }
+            contents[slot] = item;
+        }
+        return contents;
+    }
+
+    private static void writeVarInt(final DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(final DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int next = input.readUnsignedByte();
+            value |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Inventory snapshot varint is too long.");
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+
+/**
+ * Sorts inventories by material, then durability, then meta, with the fullest stacks first.
+ * Every item's sort key is worked out once up front, so sorting never compares metas directly,
+ * and the final layout is applied by only writing the slots that change.
+ * */
+public class InventorySorter {
+
+    /**
+     * Sorts an inventory's storage slots, merging partial stacks first.
+     * Armour and off hand slots are left alone.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Returns how many slots were written.
+     * Returns zero if the inventory is not valid.
+     * */
+    public static int sort(final Inventory inventory) {
+        if (!InventoryAPI.isValidInventory(inventory)) {
+            return 0;
+        }
+        ItemStack[] contents = inventory.getContents();
+        int storageSize = inventory.getStorageContents().length;
+        ItemStack[] storage = sortContents(Arrays.copyOf(contents, storageSize), inventory.getMaxStackSize());
+        System.arraycopy(storage, 0, contents, 0, storageSize);
+        return InventoryAPI.applyContents(inventory, contents);
+    }
+
+    /**
+     * Sorts a set of items, merging partial stacks first, without changing the given items.
+     * Sorted items are packed at the start of the result, empty slots are left at the end.
+     * Returns an empty array if the contents are null.
+     * */
+    public static ItemStack[] sortContents(final ItemStack[] contents, final int maxStackSize) {
+        if (contents == null) {
+            return new ItemStack[0];
+        }
+        ItemStack[] compacted = InventoryAPI.compactContents(contents, maxStackSize);
+        Entry[] entries = new Entry[compacted.length];
+        int count = 0;
+        for (ItemStack item : compacted) {
+            if (ItemAPI.isValidItem(item)) {
+                entries[count] = new Entry(item, count);
+                count++;
+            }
+        }
+        Arrays.sort(entries, 0, count, InventorySorter::compare);
+        ItemStack[] result = new ItemStack[contents.length];
+        for (int i = 0; i < count; i++) {
+            result[i] = entries[i].item;
+        }
+        return result;
+    }
+
+    private static int compare(Entry lhs, Entry rhs) {
+        int result = Integer.compareUnsigned(lhs.materialKey, rhs.materialKey);
+        if (result != 0) {
+            return result;
+        }
+        // Group identical metas together, the order between different metas doesn't matter
+        result = Integer.compare(lhs.metaHash, rhs.metaHash);
+        if (result != 0) {
+            return result;
+        }
+        result = Integer.compare(rhs.amount, lhs.amount);
+        if (result != 0) {
+            return result;
+        }
+        return Integer.compare(lhs.order, rhs.order);
+    }
+
+    private static class Entry {
+
+        private final ItemStack item;
+        private final int materialKey;
+        private final int metaHash;
+        private final int amount;
+        private final int order;
+
+        private Entry(ItemStack item, int order) {
+            this.item = item;
+            this.materialKey = ItemAPI.getMaterialKey(item);
+            this.metaHash = ItemAPI.getMetaHash(item);
+            this.amount = item.getAmount();
+            this.order = order;
+        }
+
+    }
+
+}
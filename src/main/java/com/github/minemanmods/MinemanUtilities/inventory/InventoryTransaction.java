@@ -0,0 +1,181 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An atomic transaction between any number of inventories, such as a buyer, a seller and a tax vault.
+ * Legs are added with transfer(), remove() and add(), and then the whole transaction is committed at once.
+ * Every removal is validated before anything is changed, and if any leg fails then every inventory
+ * involved is restored together. Items reserved with InventoryEscrow are never taken by a removal.
+ * It is recommended that transactions be committed from a synchronous scheduler.
+ * */
+public class InventoryTransaction {
+
+    private final List<Leg> removals = new ArrayList<>();
+    private final List<Leg> additions = new ArrayList<>();
+    private final Map<Inventory, Long> expected = new IdentityHashMap<>();
+    private boolean committed;
+
+    /**
+     * Moves items from one inventory to another.
+     * Throws if either inventory is invalid.
+     * Throws if the items are null or contain an invalid item.
+     * */
+    public InventoryTransaction transfer(final Inventory from, final Inventory to, final ItemStack... items) throws InvalidParameterException {
+        remove(from, items);
+        add(to, items);
+        return this;
+    }
+
+    /**
+     * Removes items from an inventory.
+     * Throws if the inventory is invalid.
+     * Throws if the items are null or contain an invalid item.
+     * */
+    public InventoryTransaction remove(final Inventory inventory, final ItemStack... items) throws InvalidParameterException {
+        this.removals.add(createLeg(inventory, items));
+        return this;
+    }
+
+    /**
+     * Adds items to an inventory.
+     * Throws if the inventory is invalid.
+     * Throws if the items are null or contain an invalid item.
+     * */
+    public InventoryTransaction add(final Inventory inventory, final ItemStack... items) throws InvalidParameterException {
+        this.additions.add(createLeg(inventory, items));
+        return this;
+    }
+
+    /**
+     * Requires an inventory to still be in the state it was stamped in when the transaction is committed.
+     * See InventoryVersions.stamp()
+     * Throws if the inventory is null.
+     * */
+    public InventoryTransaction expect(final Inventory inventory, final long stamp) throws InvalidParameterException {
+        if (inventory == null) {
+            throw new InvalidParameterException("Cannot perform transaction, an inventory is invalid.");
+        }
+        this.expected.put(inventory, stamp);
+        return this;
+    }
+
+    /**
+     * Checks that every inventory holds everything that is to be removed from it.
+     * Stamped inventories are checked first, so a stale transaction fails before anything is scanned.
+     * Removals from the same inventory are combined, and each inventory is only scanned once.
+     * Throws if any stamped inventory has changed.
+     * Throws if any inventory does not have enough of an item that isn't reserved, see InventoryEscrow
+     * */
+    public void validate() throws FailedTransactionException {
+        plan();
+    }
+
+    /**
+     * Validates and then applies every leg of the transaction.
+     * All removals are applied before any additions, using the removal plans made while validating.
+     * Only the slots that were changed will be restored if an error occurs.
+     * Throws if the transaction has already been committed.
+     * Throws if any stamped inventory has changed.
+     * Throws if any inventory does not have enough of an item.
+     * Throws if any inventory does not have enough space for its items.
+     * */
+    public void commit() throws FailedTransactionException {
+        if (this.committed) {
+            throw new FailedTransactionException("That transaction has already been committed.");
+        }
+        List<RemovalPlan> plans = plan();
+        TransactionJournal journal = new TransactionJournal();
+        try {
+            for (RemovalPlan plan : plans) {
+                plan.commit(journal);
+            }
+            for (Leg leg : this.additions) {
+                for (ItemStack item : leg.items) {
+                    InventoryAPI.addItemToInventory(leg.inventory, item, journal);
+                }
+            }
+        }
+        catch (FailedTransactionException exception) {
+            // Restore the changed slots of every inventory to their previous state
+            journal.rollback();
+            throw exception;
+        }
+        this.committed = true;
+    }
+
+    private List<RemovalPlan> plan() throws FailedTransactionException {
+        // Versions are a single lookup each, so every stale stamp fails before any contents are read
+        for (Map.Entry<Inventory, Long> entry : this.expected.entrySet()) {
+            if (!InventoryVersions.isVersionCurrent(entry.getKey(), entry.getValue())) {
+                throw new FailedTransactionException("That inventory has changed since it was stamped.");
+            }
+        }
+        Map<Inventory, List<ItemStack>> required = new IdentityHashMap<>();
+        for (Leg leg : this.removals) {
+            if (leg.items.length > 0) {
+                required.computeIfAbsent(leg.inventory, key -> new ArrayList<>()).addAll(Arrays.asList(leg.items));
+            }
+        }
+        // Stamped inventories with nothing to remove still need their contents checked
+        for (Map.Entry<Inventory, Long> entry : this.expected.entrySet()) {
+            if (!required.containsKey(entry.getKey())) {
+                checkContents(entry.getKey(), entry.getKey().getContents());
+            }
+        }
+        // Each inventory's contents are read once, for both its stamp and its removal plan,
+        // and each plan combines similar items and scans those contents once, proving the removal possible
+        List<RemovalPlan> plans = new ArrayList<>(required.size());
+        for (Map.Entry<Inventory, List<ItemStack>> entry : required.entrySet()) {
+            Inventory inventory = entry.getKey();
+            ItemStack[] contents = inventory.getContents();
+            checkContents(inventory, contents);
+            plans.add(RemovalPlan.create(inventory, contents, entry.getValue().toArray(new ItemStack[0])));
+        }
+        return plans;
+    }
+
+    private void checkContents(Inventory inventory, ItemStack[] contents) throws FailedTransactionException {
+        Long stamp = this.expected.get(inventory);
+        if (stamp != null && !InventoryVersions.isContentsCurrent(contents, stamp)) {
+            throw new FailedTransactionException("That inventory has changed since it was stamped.");
+        }
+    }
+
+    private static Leg createLeg(Inventory inventory, ItemStack[] items) throws InvalidParameterException {
+        if (!InventoryAPI.isValidInventory(inventory)) {
+            throw new InvalidParameterException("Cannot perform transaction, an inventory is invalid.");
+        }
+        if (items == null) {
+            throw new InvalidParameterException("Cannot perform transaction, items are null.");
+        }
+        if (items.length > 0 && !ItemAPI.isValidItemSet(items)) {
+            throw new InvalidParameterException("Cannot perform transaction, items contain an invalid item!");
+        }
+        return new Leg(inventory, items.clone());
+    }
+
+    private static class Leg {
+
+        private final Inventory inventory;
+        private final ItemStack[] items;
+
+        private Leg(Inventory inventory, ItemStack[] items) {
+            this.inventory = inventory;
+            this.items = items;
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.google.common.collect.MapMaker;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version stamps for inventories, so that a trade priced against an inventory can fail fast
+ * if that inventory has changed by the time the trade runs, without holding locks.
+ *
+ * Every change this library makes to an inventory, or reports with touch(), bumps that inventory's version.
+ * Versions are kept per container, see InventoryAPI.getContainer(), so every wrapper of the same chest shares one.
+ * A stale version is caught without looking at the contents at all.
+ *
+ * Changes made by anything else, such as players or other plugins, don't bump the version, so a stamp also holds
+ * a 32 bit hash of the contents and isCurrent() rehashes the contents whenever the version still matches.
+ * That fallback reads every slot, but reads item tags in place so nothing is copied, and like any 32 bit hash it
+ * can very rarely miss a change. When every change is known to go through this library or touch(),
+ * isVersionCurrent() skips the fallback and is a single lookup.
+ * Containers are held weakly, so tracking an inventory never keeps it loaded.
+ * */
+public class InventoryVersions {
+
+    private static final ConcurrentMap<Object, AtomicLong> versions = new MapMaker().weakKeys().makeMap();
+
+    /**
+     * Gets how many times this library has changed an inventory's container.
+     * Returns zero if the inventory is null or has never been changed.
+     * */
+    public static long getVersion(final Inventory inventory) {
+        if (inventory == null) {
+            return 0;
+        }
+        AtomicLong version = versions.get(InventoryAPI.getContainer(inventory));
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Marks an inventory as changed, bumping its version.
+     * Call this after changing an inventory directly if stamps need to notice without rehashing.
+     * Does nothing if the inventory is null.
+     * */
+    public static void touch(final Inventory inventory) {
+        if (inventory != null) {
+            versions.computeIfAbsent(InventoryAPI.getContainer(inventory), key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /**
+     * Takes a stamp of an inventory's current state.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Returns zero if the inventory is null.
+     * */
+    public static long stamp(final Inventory inventory) {
+        if (inventory == null) {
+            return 0;
+        }
+        return (getVersion(inventory) << 32) | (hashContents(inventory.getContents()) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Checks whether an inventory is still in the state it was stamped in.
+     * A changed version fails straight away, otherwise the contents are hashed to catch changes made elsewhere.
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Returns false if the inventory is null.
+     * */
+    public static boolean isCurrent(final Inventory inventory, final long stamp) {
+        if (!isVersionCurrent(inventory, stamp)) {
+            return false;
+        }
+        return (int) stamp == hashContents(inventory.getContents());
+    }
+
+    /**
+     * Checks whether contents already read from an inventory are still what it was stamped with, see isCurrent()
+     * This lets a caller that has to read the contents anyway, such as a removal scan, check its stamp on the same copy.
+     * The version must already have been checked with isVersionCurrent().
+     * */
+    static boolean isContentsCurrent(final ItemStack[] contents, final long stamp) {
+        return (int) stamp == hashContents(contents);
+    }
+
+    /**
+     * Checks whether an inventory's version is still the one it was stamped with, without looking at its contents.
+     * This only notices changes made through this library or reported with touch().
+     * Returns false if the inventory is null.
+     * */
+    public static boolean isVersionCurrent(final Inventory inventory, final long stamp) {
+        return inventory != null && (stamp >>> 32) == (getVersion(inventory) & 0xFFFFFFFFL);
+    }
+
+    private static int hashContents(final ItemStack[] contents) {
+        // The same fingerprint InventoryFingerprint keeps, folded into the 32 bits a stamp has room for
+        long fingerprint = InventoryFingerprint.of(contents);
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+
+}
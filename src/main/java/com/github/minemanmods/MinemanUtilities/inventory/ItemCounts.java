@@ -0,0 +1,123 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How many of each item a set of items holds, keyed the same way as ItemAPI.isSimilarItem()
+ * Items without meta are counted by their packed material key in a primitive map, so that the
+ * common case of plain items does not allocate. Only items with meta are keyed by ItemKey.
+ * */
+public class ItemCounts {
+
+    private final MaterialCounts plain = new MaterialCounts();
+    private final Map<ItemKey, Integer> withMeta = new HashMap<>();
+    private long total;
+
+    /**
+     * Counts every valid item in a set of items in a single pass.
+     * Returns empty counts if the items are null.
+     * */
+    public static ItemCounts of(ItemStack[] items) {
+        ItemCounts counts = new ItemCounts();
+        if (items != null) {
+            for (ItemStack item : items) {
+                counts.add(item);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Adds an item's amount to the counts.
+     * Does nothing if the item is not valid.
+     * */
+    public void add(ItemStack item) {
+        if (!ItemAPI.isValidItem(item)) {
+            return;
+        }
+        if (ItemAPI.hasItemMeta(item)) {
+            this.withMeta.merge(ItemKey.of(item), item.getAmount(), Integer::sum);
+        }
+        else {
+            this.plain.add(ItemAPI.getMaterialKey(item), item.getAmount());
+        }
+        this.total += item.getAmount();
+    }
+
+    /**
+     * Adds every count from another set of counts to this one.
+     * */
+    public void addAll(ItemCounts other) {
+        if (other != null) {
+            this.plain.addAll(other.plain);
+            for (Map.Entry<ItemKey, Integer> entry : other.withMeta.entrySet()) {
+                this.withMeta.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+            this.total += other.total;
+        }
+    }
+
+    /**
+     * Gets how many of an item were counted, ignoring the item's own amount.
+     * Returns zero if the item is not valid.
+     * */
+    public int get(ItemStack item) {
+        if (!ItemAPI.isValidItem(item)) {
+            return 0;
+        }
+        if (ItemAPI.hasItemMeta(item)) {
+            return this.withMeta.getOrDefault(ItemKey.of(item), 0);
+        }
+        return this.plain.get(ItemAPI.getMaterialKey(item));
+    }
+
+    /**
+     * Gets how many of a plain material and durability, without any meta, were counted.
+     * */
+    public int get(Material material, short durability) {
+        return this.plain.get(ItemAPI.getMaterialKey(material, durability));
+    }
+
+    /**
+     * Gets the counts of items without meta, by packed material key.
+     * */
+    public MaterialCounts getPlainCounts() {
+        return this.plain;
+    }
+
+    /**
+     * Gets the total amount of every item counted.
+     * */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Gets how many distinct items were counted.
+     * */
+    public int size() {
+        return this.plain.size() + this.withMeta.size();
+    }
+
+    /**
+     * Gets every count keyed by ItemKey.
+     * This allocates a key per plain material, so prefer get() for lookups.
+     * */
+    @SuppressWarnings("deprecation")
+    public Map<ItemKey, Integer> toMap() {
+        Map<ItemKey, Integer> result = new LinkedHashMap<>();
+        for (int key : this.plain.keys()) {
+            ItemStack item = new ItemStack(Material.getMaterial(key >>> 16), 1, (short) key);
+            result.put(ItemKey.of(item), this.plain.get(key));
+        }
+        result.putAll(this.withMeta);
+        return result;
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * A hashable key for an item, ignoring its amount.
+ * Two keys are equal when their items pass the ItemAPI.isSimilarItem() check.
+ * The material and meta are hashed once up front, so keys are cheap to look up repeatedly.
+ * */
+public class ItemKey {
+
+    private final ItemStack prototype;
+    private final int materialKey;
+    private final int metaHash;
+
+    private ItemKey(ItemStack prototype, int materialKey, int metaHash) {
+        this.prototype = prototype;
+        this.materialKey = materialKey;
+        this.metaHash = metaHash;
+    }
+
+    /**
+     * Creates a key for an item.
+     * Returns null if the item is not valid.
+     * */
+    public static ItemKey of(ItemStack item) {
+        if (!ItemAPI.isValidItem(item)) {
+            return null;
+        }
+        ItemStack prototype = item.clone();
+        prototype.setAmount(1);
+        return new ItemKey(prototype, ItemAPI.getMaterialKey(item), ItemAPI.getMetaHash(item));
+    }
+
+    /**
+     * Gets a copy of the item this key represents, with an amount of one.
+     * */
+    public ItemStack getItem() {
+        return this.prototype.clone();
+    }
+
+    /**
+     * Gets a copy of the item this key represents with the given amount.
+     * */
+    public ItemStack getItem(int amount) {
+        ItemStack item = this.prototype.clone();
+        item.setAmount(amount);
+        return item;
+    }
+
+    /**
+     * Gets the packed material key, see ItemAPI.getMaterialKey()
+     * */
+    public int getMaterialKey() {
+        return this.materialKey;
+    }
+
+    /**
+     * Gets the meta hash, see ItemAPI.getMetaHash()
+     * */
+    public int getMetaHash() {
+        return this.metaHash;
+    }
+
+    /**
+     * Checks whether an item matches this key, ignoring amount.
+     * Returns false if the item is not valid.
+     * */
+    public boolean matches(ItemStack item) {
+        return ItemAPI.isValidItem(item)
+                && ItemAPI.getMaterialKey(item) == this.materialKey
+                && ItemAPI.isSimilarItem(item, this.prototype);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ItemKey)) {
+            return false;
+        }
+        ItemKey key = (ItemKey) other;
+        return this.materialKey == key.materialKey
+                && this.metaHash == key.metaHash
+                && ItemAPI.isSimilarItem(this.prototype, key.prototype);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.materialKey + this.metaHash;
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.NBTAPI;
+import net.minecraft.server.v1_12_R1.NBTTagCompound;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A compiled item filter, such as "any diamond tool with Efficiency 4 or above" or "anything with NBT key X".
+ * Matchers are created with builder() and are immutable once built, so they can be shared and reused.
+ * Checks run cheapest first: material, then durability, then enchantments, then NBT, so most items
+ * are rejected before their meta or tags are ever read.
+ * The amount of an item is never checked.
+ * */
+public class ItemMatcher implements Predicate<ItemStack> {
+
+    private final EnumSet<Material> materials;
+    private final short minDurability;
+    private final short maxDurability;
+    private final Enchantment[] enchantments;
+    private final int[] minLevels;
+    private final String[] nbtKeys;
+
+    private ItemMatcher(Builder builder) {
+        this.materials = builder.materials.isEmpty() ? null : EnumSet.copyOf(builder.materials);
+        this.minDurability = builder.minDurability;
+        this.maxDurability = builder.maxDurability;
+        this.enchantments = builder.enchantments.keySet().toArray(new Enchantment[0]);
+        this.minLevels = new int[this.enchantments.length];
+        for (int i = 0; i < this.enchantments.length; i++) {
+            this.minLevels[i] = builder.enchantments.get(this.enchantments[i]);
+        }
+        this.nbtKeys = builder.nbtKeys.toArray(new String[0]);
+    }
+
+    /**
+     * Creates a builder for a new matcher.
+     * A matcher built without any criteria matches every valid item.
+     * */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checks whether an item matches every criteria.
+     * Returns false if the item is not valid.
+     * */
+    @Override
+    public boolean test(ItemStack item) {
+        if (!ItemAPI.isValidItem(item)) {
+            return false;
+        }
+        if (this.materials != null && !this.materials.contains(item.getType())) {
+            return false;
+        }
+        short durability = item.getDurability();
+        if (durability < this.minDurability || durability > this.maxDurability) {
+            return false;
+        }
+        if (this.enchantments.length > 0) {
+            // Items without meta can't have any enchantments, so don't bother reading them
+            if (!ItemAPI.hasItemMeta(item)) {
+                return false;
+            }
+            for (int i = 0; i < this.enchantments.length; i++) {
+                if (item.getEnchantmentLevel(this.enchantments[i]) < this.minLevels[i]) {
+                    return false;
+                }
+            }
+        }
+        if (this.nbtKeys.length > 0) {
+            NBTTagCompound tag = NBTAPI.getRawTag(item);
+            if (tag == null) {
+                return false;
+            }
+            for (String key : this.nbtKeys) {
+                if (!tag.hasKey(key)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static class Builder {
+
+        private final EnumSet<Material> materials = EnumSet.noneOf(Material.class);
+        private short minDurability = Short.MIN_VALUE;
+        private short maxDurability = Short.MAX_VALUE;
+        private final Map<Enchantment, Integer> enchantments = new LinkedHashMap<>();
+        private final List<String> nbtKeys = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Only matches items of the given materials, calling this again allows more materials.
+         * Throws if any material is null.
+         * */
+        public Builder material(final Material... materials) throws InvalidParameterException {
+            if (materials == null) {
+                throw new InvalidParameterException("Cannot match a null material.");
+            }
+            for (Material material : materials) {
+                if (material == null) {
+                    throw new InvalidParameterException("Cannot match a null material.");
+                }
+                this.materials.add(material);
+            }
+            return this;
+        }
+
+        /**
+         * Only matches items of the given materials, calling this again allows more materials.
+         * Throws if the materials are null or contain null.
+         * */
+        public Builder material(final Collection<Material> materials) throws InvalidParameterException {
+            if (materials == null) {
+                throw new InvalidParameterException("Cannot match a null material.");
+            }
+            return material(materials.toArray(new Material[0]));
+        }
+
+        /**
+         * Only matches items with exactly the given durability.
+         * */
+        public Builder durability(final short durability) {
+            return durability(durability, durability);
+        }
+
+        /**
+         * Only matches items with a durability between min and max, inclusive.
+         * Throws if min is above max.
+         * */
+        public Builder durability(final short min, final short max) throws InvalidParameterException {
+            if (min > max) {
+                throw new InvalidParameterException("Cannot match a durability range where min is above max.");
+            }
+            this.minDurability = min;
+            this.maxDurability = max;
+            return this;
+        }
+
+        /**
+         * Only matches items with an enchantment at the given level or above.
+         * Throws if the enchantment is null.
+         * Throws if the level is zero or below.
+         * */
+        public Builder enchantment(final Enchantment enchantment, final int minLevel) throws InvalidParameterException {
+            if (enchantment == null) {
+                throw new InvalidParameterException("Cannot match a null enchantment.");
+            }
+            if (minLevel < 1) {
+                throw new InvalidParameterException("Cannot match an enchantment level of zero or below.");
+            }
+            this.enchantments.put(enchantment, minLevel);
+            return this;
+        }
+
+        /**
+         * Only matches items whose NBT has the given top level key.
+         * Throws if the key is null.
+         * */
+        public Builder nbtKey(final String key) throws InvalidParameterException {
+            if (key == null) {
+                throw new InvalidParameterException("Cannot match a null NBT key.");
+            }
+            this.nbtKeys.add(key);
+            return this;
+        }
+
+        /**
+         * Compiles the criteria into a matcher.
+         * The builder can be changed and built again afterwards without affecting this matcher.
+         * */
+        public ItemMatcher build() {
+            return new ItemMatcher(this);
+        }
+
+    }
+
+}
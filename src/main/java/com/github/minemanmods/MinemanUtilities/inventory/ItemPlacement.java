@@ -0,0 +1,163 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import org.bukkit.inventory.ItemStack;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * A plan of where items would go if they were added to a set of slots, worked out without changing or cloning anything.
+ * Items are placed in the order given, the same way Inventory.addItem() places them: similar partial stacks are
+ * topped up first, then empty slots are filled, so earlier items can take space from later ones.
+ *
+ * This is the one placement routine behind InventoryAPI.getFittableAmounts(), InventoryAPI.addItemToInventory(),
+ * ShadowInventory and VirtualInventory, so they all agree on where items go.
+ * */
+public class ItemPlacement {
+
+    private final ItemStack[] contents;
+    private final ItemStack[] items;
+    private final int[] amounts;
+    // The index of the item that a planned stack came from, or -1 if the slot's own item is there
+    private final int[] owners;
+    private final int[] placed;
+    private final boolean[] changed;
+
+    private ItemPlacement(ItemStack[] contents, ItemStack[] items, int size) {
+        this.contents = contents;
+        this.items = items;
+        this.amounts = new int[size];
+        this.owners = new int[size];
+        this.placed = new int[items.length];
+        this.changed = new boolean[size];
+    }
+
+    /**
+     * Plans where items would go in a set of slots, see plan(ItemStack[], int, int, ItemStack...)
+     * */
+    public static ItemPlacement plan(final ItemStack[] contents, final int maxStackSize, final ItemStack... items) throws InvalidParameterException {
+        return plan(contents, contents == null ? 0 : contents.length, maxStackSize, items);
+    }
+
+    /**
+     * Plans where items would go in the first slots of a set of slots, such as an inventory's storage slots.
+     * Invalid items are given zero and take no space.
+     * Throws if the contents or items are null.
+     * Throws if the size is below zero or beyond the end of the contents.
+     * */
+    public static ItemPlacement plan(final ItemStack[] contents, final int size, final int maxStackSize, final ItemStack... items) throws InvalidParameterException {
+        if (contents == null || items == null) {
+            throw new InvalidParameterException("Cannot plan the placement of items without contents or items.");
+        }
+        if (size < 0 || size > contents.length) {
+            throw new InvalidParameterException("Cannot plan the placement of items beyond the end of the contents.");
+        }
+        ItemPlacement placement = new ItemPlacement(contents, items, size);
+        int[] amounts = placement.amounts;
+        int[] owners = placement.owners;
+        for (int slot = 0; slot < size; slot++) {
+            amounts[slot] = ItemAPI.isValidItem(contents[slot]) ? contents[slot].getAmount() : 0;
+            owners[slot] = -1;
+        }
+        for (int i = 0; i < items.length; i++) {
+            ItemStack item = items[i];
+            if (!ItemAPI.isValidItem(item)) {
+                continue;
+            }
+            int max = Math.min(item.getMaxStackSize(), maxStackSize);
+            int remaining = item.getAmount();
+            // Top up similar partial stacks first
+            for (int slot = 0; slot < size && remaining > 0; slot++) {
+                if (amounts[slot] == 0 || amounts[slot] >= max) {
+                    continue;
+                }
+                ItemStack occupant = owners[slot] < 0 ? contents[slot] : items[owners[slot]];
+                if (ItemAPI.isSimilarItem(occupant, item)) {
+                    int added = Math.min(max - amounts[slot], remaining);
+                    amounts[slot] += added;
+                    placement.changed[slot] = true;
+                    remaining -= added;
+                }
+            }
+            // Then fill empty slots
+            for (int slot = 0; slot < size && remaining > 0; slot++) {
+                if (amounts[slot] == 0) {
+                    int added = Math.min(max, remaining);
+                    amounts[slot] = added;
+                    owners[slot] = i;
+                    placement.changed[slot] = true;
+                    remaining -= added;
+                }
+            }
+            placement.placed[i] = item.getAmount() - remaining;
+        }
+        return placement;
+    }
+
+    /**
+     * Gets how much of each item would fit, matching the order of the items.
+     * */
+    public int[] getPlacedAmounts() {
+        return this.placed.clone();
+    }
+
+    /**
+     * Checks whether every item would fit in its entirety.
+     * Returns false if any item is not valid.
+     * */
+    public boolean isComplete() {
+        for (int i = 0; i < this.items.length; i++) {
+            if (!ItemAPI.isValidItem(this.items[i]) || this.placed[i] < this.items[i].getAmount()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the slots that would change, in order.
+     * */
+    public int[] getChangedSlots() {
+        int[] slots = new int[this.changed.length];
+        int count = 0;
+        for (int slot = 0; slot < this.changed.length; slot++) {
+            if (this.changed[slot]) {
+                slots[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(slots, count);
+    }
+
+    /**
+     * Creates the item a changed slot would end up holding.
+     * The contents and items are never changed, the result is always a new item.
+     * Returns null if the slot would not change or is out of range.
+     * */
+    public ItemStack getResult(final int slot) {
+        if (slot < 0 || slot >= this.changed.length || !this.changed[slot]) {
+            return null;
+        }
+        ItemStack source = this.owners[slot] < 0 ? this.contents[slot] : this.items[this.owners[slot]];
+        ItemStack result = source.clone();
+        result.setAmount(this.amounts[slot]);
+        return result;
+    }
+
+    /**
+     * Writes every changed slot into a set of slots, replacing the items there rather than changing them.
+     * This is usually the same array the plan was made from.
+     * Throws if the target is smaller than the planned slots.
+     * */
+    public void applyTo(final ItemStack[] target) throws InvalidParameterException {
+        if (target == null || target.length < this.changed.length) {
+            throw new InvalidParameterException("Cannot apply a placement to fewer slots than it was planned for.");
+        }
+        for (int slot = 0; slot < this.changed.length; slot++) {
+            if (this.changed[slot]) {
+                target[slot] = getResult(slot);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import java.util.Arrays;
+
+/**
+ * Counts amounts by packed material key, see ItemAPI.getMaterialKey()
+ * This is an open addressing map over primitive arrays, so counting does not box or allocate
+ * per item. Zero is the key for air, which is never counted, so it marks empty entries.
+ * */
+public class MaterialCounts {
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public MaterialCounts() {
+        this(16);
+    }
+
+    public MaterialCounts(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+    }
+
+    /**
+     * Adds an amount to a key's count.
+     * Does nothing if the key is zero.
+     * */
+    public void add(int key, int amount) {
+        if (key == 0) {
+            return;
+        }
+        int index = find(this.keys, key);
+        if (this.keys[index] == 0) {
+            this.keys[index] = key;
+            this.size++;
+            this.values[index] = amount;
+            if (this.size * 2 > this.keys.length) {
+                grow();
+            }
+        }
+        else {
+            this.values[index] += amount;
+        }
+    }
+
+    /**
+     * Gets the count of a key.
+     * Returns zero if the key has not been counted.
+     * */
+    public int get(int key) {
+        if (key == 0) {
+            return 0;
+        }
+        int index = find(this.keys, key);
+        return this.keys[index] == 0 ? 0 : this.values[index];
+    }
+
+    /**
+     * Gets how many distinct keys have been counted.
+     * */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets every key that has been counted, in no particular order.
+     * */
+    public int[] keys() {
+        int[] result = new int[this.size];
+        int next = 0;
+        for (int key : this.keys) {
+            if (key != 0) {
+                result[next++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds every count from another set of counts to this one.
+     * */
+    public void addAll(MaterialCounts other) {
+        if (other != null) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.keys[i] != 0) {
+                    add(other.keys[i], other.values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears every count, keeping the allocated capacity.
+     * */
+    public void clear() {
+        Arrays.fill(this.keys, 0);
+        Arrays.fill(this.values, 0);
+        this.size = 0;
+    }
+
+    private void grow() {
+        int[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new int[oldKeys.length * 2];
+        this.values = new int[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = find(this.keys, oldKeys[i]);
+                this.keys[index] = oldKeys[i];
+                this.values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int find(int[] keys, int key) {
+        int mask = keys.length - 1;
+        // Material ids live in the high bits, so mix them down before masking
+        int index = (key * 0x9E3779B9) >>> 16 & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,350 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
+import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftItemStack;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * A plan of which slots to take how much from in order to remove items from an inventory.
+ * Plans are created by a single scan of the inventory, which also proves that the removal
+ * is possible, so committing a plan never needs to roll anything back.
+ * Plans can also be made over plain arrays of items, and applied with applyTo(), which is the
+ * one removal routine that ShadowInventory and VirtualInventory share with InventoryAPI.
+ * Plans made from an inventory leave enough behind to cover any InventoryEscrow reservations,
+ * but which slots are taken from is unchanged, as reservations don't belong to any slot.
+ * It is recommended that plans be created and committed from a synchronous scheduler,
+ * within the same tick.
+ * */
+public class RemovalPlan {
+
+    private final Inventory inventory;
+    private final ItemStack[] items;
+    private final int[] slots;
+    private final int[] amounts;
+    private final int[] expected;
+    private final ItemMatcher matcher;
+    private boolean committed;
+
+    private RemovalPlan(Inventory inventory, ItemStack[] items, int[] slots, int[] amounts, int[] expected) {
+        this(inventory, items, slots, amounts, expected, null);
+    }
+
+    private RemovalPlan(Inventory inventory, ItemStack[] items, int[] slots, int[] amounts, int[] expected, ItemMatcher matcher) {
+        this.inventory = inventory;
+        this.matcher = matcher;
+        this.items = items;
+        this.slots = slots;
+        this.amounts = amounts;
+        this.expected = expected;
+    }
+
+    /**
+     * Plans the removal of item stacks from an inventory in a single scan.
+     * Similar items are combined first, so each slot is only matched once against the combined set.
+     * Requests are hashed by material key, so each slot costs one lookup, and is then only compared against
+     * a single copy of each requested item with that material, so no slot's item is ever copied.
+     * Throws if the inventory is not valid.
+     * Throws if the items are null, empty, or contain an invalid item.
+     * Throws if the inventory does not have the required amount of every item that isn't reserved.
+     * */
+    public static RemovalPlan create(final Inventory inventory, final ItemStack... items) throws InvalidParameterException, FailedTransactionException {
+        if (!InventoryAPI.isValidInventory(inventory)) {
+            throw new InvalidParameterException("Cannot remove item from an invalid inventory.");
+        }
+        return create(inventory, inventory.getContents(), items);
+    }
+
+    /**
+     * Plans the removal of item stacks from a set of items in a single scan, see create(Inventory, ItemStack...)
+     * The plan can only be applied with applyTo(), as there's no inventory to commit to.
+     * Throws if the contents are not valid.
+     * Throws if the items are null, empty, or contain an invalid item.
+     * Throws if the contents do not have the required amount of every item.
+     * */
+    public static RemovalPlan create(final ItemStack[] contents, final ItemStack... items) throws InvalidParameterException, FailedTransactionException {
+        if (!InventoryAPI.isValidInventory(contents)) {
+            throw new InvalidParameterException("Cannot remove item from an invalid inventory.");
+        }
+        return create(null, null, contents, items);
+    }
+
+    /**
+     * Plans the removal of item stacks from a copy of an inventory's contents, such as a ShadowInventory,
+     * leaving enough behind for the real inventory's reservations, see InventoryEscrow
+     * The plan can only be applied with applyTo(), as there's no inventory to commit to.
+     * */
+    static RemovalPlan createReserving(final Inventory source, final ItemStack[] contents, final ItemStack[] items) throws InvalidParameterException, FailedTransactionException {
+        return create(null, source, contents, items);
+    }
+
+    /**
+     * Plans the removal of item stacks from contents that were just read from an inventory, see create(Inventory, ItemStack...)
+     * This lets a caller that has already read the contents for something else avoid reading them twice.
+     * */
+    static RemovalPlan create(final Inventory inventory, final ItemStack[] contents, final ItemStack[] items) throws InvalidParameterException, FailedTransactionException {
+        return create(inventory, inventory, contents, items);
+    }
+
+    private static RemovalPlan create(final Inventory inventory, final Inventory escrow, final ItemStack[] contents, final ItemStack[] items) throws InvalidParameterException, FailedTransactionException {
+        if (!ItemAPI.isValidItemSet(items)) {
+            throw new InvalidParameterException("Cannot remove an invalid item from an inventory.");
+        }
+        // Requests are hashed by material key into a small open-addressed table, and requests sharing
+        // a material key but not their meta are chained together through next
+        int mask = (Integer.highestOneBit(Math.max(1, items.length)) << 2) - 1;
+        int[] tableKeys = new int[mask + 1];
+        int[] heads = new int[mask + 1];
+        int[] next = new int[items.length];
+        ItemStack[] prototypes = new ItemStack[items.length];
+        int[] remaining = new int[items.length];
+        // How many more of each item must be left behind for reservations, once the requested amount is found
+        int[] reserved = new int[items.length];
+        int kinds = 0;
+        for (ItemStack item : items) {
+            int key = ItemAPI.getMaterialKey(item);
+            int bucket = findBucket(tableKeys, heads, mask, key);
+            int kind = heads[bucket] - 1;
+            int last = -1;
+            while (kind >= 0 && !ItemAPI.isSimilarItem(prototypes[kind], item)) {
+                last = kind;
+                kind = next[kind];
+            }
+            if (kind < 0) {
+                kind = kinds++;
+                // Inventory slots are backed by Minecraft, so a backed copy lets comparisons read tags in place
+                prototypes[kind] = escrow == null ? item.clone() : CraftItemStack.asCraftCopy(item);
+                next[kind] = -1;
+                if (last < 0) {
+                    tableKeys[bucket] = key;
+                    heads[bucket] = kind + 1;
+                }
+                else {
+                    next[last] = kind;
+                }
+            }
+            remaining[kind] += item.getAmount();
+        }
+        if (escrow != null) {
+            for (int kind = 0; kind < kinds; kind++) {
+                reserved[kind] = InventoryEscrow.getReserved(escrow, prototypes[kind]);
+            }
+        }
+        int unsatisfied = kinds;
+        ItemStack[] matched = new ItemStack[contents.length];
+        int[] slots = new int[contents.length];
+        int[] amounts = new int[contents.length];
+        int[] expected = new int[contents.length];
+        int planned = 0;
+        for (int i = 0; i < contents.length && unsatisfied > 0; i++) {
+            ItemStack currentItem = contents[i];
+            if (!ItemAPI.isValidItem(currentItem)) {
+                continue;
+            }
+            int kind = heads[findBucket(tableKeys, heads, mask, ItemAPI.getMaterialKey(currentItem))] - 1;
+            while (kind >= 0 && ((remaining[kind] <= 0 && reserved[kind] <= 0) || !ItemAPI.isSimilarItem(currentItem, prototypes[kind]))) {
+                kind = next[kind];
+            }
+            if (kind < 0) {
+                continue;
+            }
+            int currentItemAmount = currentItem.getAmount();
+            int taken = Math.min(currentItemAmount, remaining[kind]);
+            if (taken > 0) {
+                matched[planned] = prototypes[kind];
+                slots[planned] = i;
+                amounts[planned] = taken;
+                expected[planned] = currentItemAmount;
+                remaining[kind] -= taken;
+                planned++;
+            }
+            reserved[kind] -= currentItemAmount - taken;
+            if (remaining[kind] <= 0 && reserved[kind] <= 0) {
+                unsatisfied--;
+            }
+        }
+        if (unsatisfied > 0) {
+            throw new FailedTransactionException("That inventory does not have the amount of items to remove.");
+        }
+        return new RemovalPlan(inventory,
+                Arrays.copyOf(matched, planned),
+                Arrays.copyOf(slots, planned),
+                Arrays.copyOf(amounts, planned),
+                Arrays.copyOf(expected, planned));
+    }
+
+    /**
+     * Plans the removal of an amount of any items that match from an inventory in a single scan.
+     * The first matching slots are taken from, whatever their items are.
+     * Throws if the inventory is not valid.
+     * Throws if the matcher is null.
+     * Throws if the amount is zero or below.
+     * Throws if the inventory does not have the required amount of matching items that aren't reserved.
+     * */
+    public static RemovalPlan create(final Inventory inventory, final ItemMatcher matcher, final int amount) throws InvalidParameterException, FailedTransactionException {
+        if (!InventoryAPI.isValidInventory(inventory)) {
+            throw new InvalidParameterException("Cannot remove item from an invalid inventory.");
+        }
+        if (matcher == null) {
+            throw new InvalidParameterException("Cannot remove items with a null matcher.");
+        }
+        if (amount <= 0) {
+            throw new InvalidParameterException("Cannot remove an amount of zero or below.");
+        }
+        ItemStack[] contents = inventory.getContents();
+        int[] slots = new int[contents.length];
+        int[] amounts = new int[contents.length];
+        int[] expected = new int[contents.length];
+        int planned = 0;
+        int remaining = amount;
+        int reserved = InventoryEscrow.getReserved(inventory, matcher);
+        for (int i = 0; i < contents.length && (remaining > 0 || reserved > 0); i++) {
+            ItemStack currentItem = contents[i];
+            if (!matcher.test(currentItem)) {
+                continue;
+            }
+            int currentItemAmount = currentItem.getAmount();
+            int taken = Math.min(currentItemAmount, remaining);
+            if (taken > 0) {
+                slots[planned] = i;
+                amounts[planned] = taken;
+                expected[planned] = currentItemAmount;
+                remaining -= taken;
+                planned++;
+            }
+            reserved -= currentItemAmount - taken;
+        }
+        if (remaining > 0 || reserved > 0) {
+            throw new FailedTransactionException("That inventory does not have the amount of items to remove.");
+        }
+        return new RemovalPlan(inventory,
+                new ItemStack[planned],
+                Arrays.copyOf(slots, planned),
+                Arrays.copyOf(amounts, planned),
+                Arrays.copyOf(expected, planned),
+                matcher);
+    }
+
+    /**
+     * Gets the inventory this plan removes from.
+     * Returns null if the plan was made from a set of items.
+     * */
+    public Inventory getInventory() {
+        return this.inventory;
+    }
+
+    /**
+     * Gets the slots this plan removes from, in order.
+     * */
+    public int[] getSlots() {
+        return this.slots.clone();
+    }
+
+    /**
+     * Gets the amounts this plan removes, matching the order of getSlots()
+     * */
+    public int[] getAmounts() {
+        return this.amounts.clone();
+    }
+
+    /**
+     * Checks whether every planned slot still holds what it held when the plan was made.
+     * Returns false if the plan has no inventory.
+     * */
+    public boolean isStillValid() {
+        if (this.inventory == null) {
+            return false;
+        }
+        for (int i = 0; i < this.slots.length; i++) {
+            ItemStack currentItem = this.inventory.getItem(this.slots[i]);
+            boolean matches = this.matcher == null ? ItemAPI.isSimilarItem(currentItem, this.items[i]) : this.matcher.test(currentItem);
+            if (!matches || currentItem.getAmount() != this.expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the plan to a set of items, usually the same array the plan was made from.
+     * Planned slots are replaced with new items rather than changed, so other holders of the old items are unaffected.
+     * Throws if the contents are too small for the planned slots.
+     * */
+    public void applyTo(final ItemStack[] contents) throws InvalidParameterException {
+        for (int slot : this.slots) {
+            if (contents == null || slot >= contents.length) {
+                throw new InvalidParameterException("Cannot apply a removal plan to fewer slots than it was planned for.");
+            }
+        }
+        for (int i = 0; i < this.slots.length; i++) {
+            int remaining = this.expected[i] - this.amounts[i];
+            ItemStack currentItem = contents[this.slots[i]];
+            if (remaining <= 0 || currentItem == null) {
+                contents[this.slots[i]] = null;
+            }
+            else {
+                ItemStack reduced = currentItem.clone();
+                reduced.setAmount(remaining);
+                contents[this.slots[i]] = reduced;
+            }
+        }
+    }
+
+    /**
+     * Applies the plan to the inventory.
+     * Every planned slot is checked before any are written, so the inventory is never left half changed.
+     * Throws if the plan has no inventory, see applyTo()
+     * Throws if the plan has already been committed.
+     * Throws if the inventory has changed since the plan was made.
+     * */
+    public void commit() throws FailedTransactionException {
+        commit(null);
+    }
+
+    /**
+     * Applies the plan to the inventory, recording every slot it changes to a journal.
+     * See commit()
+     * */
+    public void commit(TransactionJournal journal) throws FailedTransactionException {
+        if (this.inventory == null) {
+            throw new FailedTransactionException("That removal plan has no inventory to commit to.");
+        }
+        if (this.committed) {
+            throw new FailedTransactionException("That removal plan has already been committed.");
+        }
+        if (!isStillValid()) {
+            throw new FailedTransactionException("That inventory has changed since the removal was planned.");
+        }
+        for (int i = 0; i < this.slots.length; i++) {
+            if (journal != null) {
+                journal.record(this.inventory, this.slots[i]);
+            }
+            if (this.amounts[i] == this.expected[i]) {
+                this.inventory.setItem(this.slots[i], null);
+            }
+            else {
+                ItemStack currentItem = this.inventory.getItem(this.slots[i]);
+                currentItem.setAmount(this.expected[i] - this.amounts[i]);
+                this.inventory.setItem(this.slots[i], currentItem);
+            }
+        }
+        InventoryVersions.touch(this.inventory);
+        this.committed = true;
+    }
+
+    private static int findBucket(final int[] tableKeys, final int[] heads, final int mask, final int key) {
+        // Spread the packed material and durability across the table, then probe linearly
+        int hash = key * 0x9E3779B9;
+        int bucket = (hash ^ (hash >>> 16)) & mask;
+        while (heads[bucket] != 0 && tableKeys[bucket] != key) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+}
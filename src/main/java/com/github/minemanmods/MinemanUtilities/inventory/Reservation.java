@@ -0,0 +1,140 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.security.InvalidParameterException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Items held aside in an inventory by InventoryEscrow.reserve()
+ * A reservation ends either by being committed, which takes the items, or by being released, which
+ * gives them back. Either way only happens once, even if called from several threads.
+ * */
+public class Reservation {
+
+    private final Inventory inventory;
+    private final Object container;
+    private final ItemKey key;
+    private final int amount;
+    private final AtomicInteger counter;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    Reservation(Inventory inventory, Object container, ItemKey key, int amount, AtomicInteger counter) {
+        this.inventory = inventory;
+        this.container = container;
+        this.key = key;
+        this.amount = amount;
+        this.counter = counter;
+    }
+
+    /**
+     * Gets the inventory the items are reserved in.
+     * */
+    public Inventory getInventory() {
+        return this.inventory;
+    }
+
+    /**
+     * Gets the container the items are reserved in, see InventoryAPI.getContainer()
+     * */
+    Object getContainer() {
+        return this.container;
+    }
+
+    /**
+     * Gets the key of the reserved item.
+     * */
+    ItemKey getKey() {
+        return this.key;
+    }
+
+    /**
+     * Gets a copy of the reserved items.
+     * */
+    public ItemStack getItem() {
+        return this.key.getItem(this.amount);
+    }
+
+    /**
+     * Gets how many items are reserved.
+     * */
+    public int getAmount() {
+        return this.amount;
+    }
+
+    /**
+     * Checks whether the reservation has been committed or released.
+     * */
+    public boolean isFinished() {
+        return this.finished.get();
+    }
+
+    /**
+     * Gives the reserved items back, so they can be spent or reserved again.
+     * Returns false if the reservation has already been committed or released.
+     * */
+    public boolean release() {
+        if (!this.finished.compareAndSet(false, true)) {
+            return false;
+        }
+        InventoryEscrow.unreserve(this.container, this.key, this.counter, this.amount);
+        return true;
+    }
+
+    /**
+     * Removes the reserved items from the inventory, see InventoryAPI.removeItemFromInventory()
+     * It is recommended that this function be called from a synchronous scheduler.
+     * Other reservations are still honoured, only this reservation's own items are free to take.
+     * The reservation is kept if the removal fails, so it can still be released.
+     * Throws if the reservation has already been committed or released.
+     * Throws if the inventory no longer has the reserved items.
+     * */
+    public void commit() throws InvalidParameterException, FailedTransactionException {
+        commit(null);
+    }
+
+    /**
+     * Moves the reserved items into another inventory, see InventoryTransaction
+     * It is recommended that this function be called from a synchronous scheduler.
+     * The reservation is kept if the move fails, so it can still be released.
+     * Throws if the reservation has already been committed or released.
+     * Throws if the inventory no longer has the reserved items.
+     * Throws if the other inventory does not have enough space.
+     * */
+    public void commitTo(final Inventory to) throws InvalidParameterException, FailedTransactionException {
+        if (!InventoryAPI.isValidInventory(to)) {
+            throw new InvalidParameterException("Cannot commit a reservation to an invalid inventory.");
+        }
+        commit(to);
+    }
+
+    private void commit(final Inventory to) throws InvalidParameterException, FailedTransactionException {
+        if (!this.finished.compareAndSet(false, true)) {
+            throw new FailedTransactionException("That reservation has already been committed or released.");
+        }
+        // The items stay reserved until they're gone, so nothing else can claim them mid-commit
+        Reservation previous = InventoryEscrow.beginCommit(this);
+        try {
+            if (to == null) {
+                InventoryAPI.removeItemFromInventory(this.inventory, getItem());
+            }
+            else {
+                new InventoryTransaction().transfer(this.inventory, to, getItem()).commit();
+            }
+        }
+        catch (FailedTransactionException | RuntimeException exception) {
+            // Nothing was taken, so the items stay reserved
+            this.finished.set(false);
+            throw exception;
+        }
+        finally {
+            InventoryEscrow.endCommit(previous);
+        }
+        InventoryEscrow.unreserve(this.container, this.key, this.counter, this.amount);
+    }
+
+}
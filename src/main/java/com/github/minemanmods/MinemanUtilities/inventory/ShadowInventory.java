@@ -0,0 +1,271 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import java.security.InvalidParameterException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A thread safe copy of an inventory that worker threads can read and change freely,
+ * with the changes being written back to the real inventory on the main thread.
+ *
+ * The contents are copy-on-write: every change swaps in a new array, and items already in
+ * an array are never changed, so reads never lock and changes never see each other half done.
+ * On commit, only the slots that changed since the snapshot are written, and only if the real
+ * inventory still holds what it held when the snapshot was taken.
+ *
+ * snapshot() and commit() must be called from the main thread, everything else can be called from any thread.
+ * */
+public class ShadowInventory {
+
+    private final Inventory inventory;
+    private final int storageSize;
+    private final int maxStackSize;
+    private final AtomicReference<ItemStack[]> contents;
+    private volatile ItemStack[] base;
+
+    private ShadowInventory(Inventory inventory, ItemStack[] base) {
+        this.inventory = inventory;
+        this.storageSize = inventory.getStorageContents().length;
+        this.maxStackSize = inventory.getMaxStackSize();
+        this.base = base;
+        this.contents = new AtomicReference<>(base);
+    }
+
+    /**
+     * Takes a snapshot of an inventory. This must be called from the main thread.
+     * Throws if the inventory is not valid.
+     * */
+    public static ShadowInventory snapshot(final Inventory inventory) throws InvalidParameterException {
+        if (!InventoryAPI.isValidInventory(inventory)) {
+            throw new InvalidParameterException("Cannot shadow an invalid inventory.");
+        }
+        return new ShadowInventory(inventory, InventoryAPI.duplicateInventory(inventory.getContents()));
+    }
+
+    /**
+     * Gets the real inventory this shadows.
+     * This should only be used from the main thread.
+     * */
+    public Inventory getInventory() {
+        return this.inventory;
+    }
+
+    /**
+     * Gets the amount of slots.
+     * */
+    public int getSize() {
+        return this.base.length;
+    }
+
+    /**
+     * Gets a copy of the item in a slot.
+     * Returns null if the slot is empty or out of range.
+     * */
+    public ItemStack getItem(final int slot) {
+        ItemStack[] current = this.contents.get();
+        if (slot < 0 || slot >= current.length || current[slot] == null) {
+            return null;
+        }
+        return current[slot].clone();
+    }
+
+    /**
+     * Gets a copy of every slot.
+     * */
+    public ItemStack[] getContents() {
+        return InventoryAPI.duplicateInventory(this.contents.get());
+    }
+
+    /**
+     * Sets the item in a slot.
+     * Throws if the slot is out of range.
+     * */
+    public void setItem(final int slot, final ItemStack item) throws InvalidParameterException {
+        if (slot < 0 || slot >= getSize()) {
+            throw new InvalidParameterException("Cannot set an item outside of the inventory.");
+        }
+        ItemStack copy = ItemAPI.isValidItem(item) ? item.clone() : null;
+        try {
+            update(next -> next[slot] = copy);
+        }
+        catch (FailedTransactionException exception) {
+            // Setting a slot can't fail
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Counts how many of an item there are, ignoring the item's own amount.
+     * Returns zero if the item is not valid.
+     * */
+    public int count(final ItemStack item) {
+        if (!ItemAPI.isValidItem(item)) {
+            return 0;
+        }
+        int count = 0;
+        for (ItemStack current : this.contents.get()) {
+            if (ItemAPI.isSimilarItem(current, item)) {
+                count += current.getAmount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether there's the required amount of an item.
+     * See InventoryAPI.hasRequiredItem()
+     * */
+    public boolean hasRequiredItem(final ItemStack item, final int amount) {
+        return ItemAPI.isValidItem(item) && amount > 0 && count(item) - InventoryEscrow.getReserved(this.inventory, item) >= amount;
+    }
+
+    /**
+     * Removes an item stack, either entirely or not at all, see RemovalPlan
+     * Items reserved in the real inventory are left behind, see InventoryEscrow
+     * Throws if the item is not valid.
+     * Throws if there isn't the required amount of the item that isn't reserved.
+     * */
+    public void removeItem(final ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        if (!ItemAPI.isValidItem(item)) {
+            throw new InvalidParameterException("Cannot remove an invalid item from an inventory.");
+        }
+        update(next -> RemovalPlan.createReserving(this.inventory, next, new ItemStack[] {item}).applyTo(next));
+    }
+
+    /**
+     * Adds an item, either entirely or not at all, the same way InventoryAPI.addItemToInventory() would.
+     * Throws if the item is not valid.
+     * Throws if there isn't enough room for the item.
+     * */
+    public void addItem(final ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        if (!ItemAPI.isValidItem(item)) {
+            throw new InvalidParameterException("Cannot add an invalid item from an inventory.");
+        }
+        update(next -> {
+            ItemPlacement placement = ItemPlacement.plan(next, this.storageSize, this.maxStackSize, item);
+            if (!placement.isComplete()) {
+                throw new FailedTransactionException("Was unable to put that item in that inventory.");
+            }
+            placement.applyTo(next);
+        });
+    }
+
+    /**
+     * Gets the slots that have changed since the snapshot, or since the last commit.
+     * */
+    public int[] getChangedSlots() {
+        ItemStack[] original = this.base;
+        ItemStack[] current = this.contents.get();
+        int[] changed = new int[current.length];
+        int count = 0;
+        for (int i = 0; i < current.length; i++) {
+            // Changed slots always get new items, so comparing references is enough
+            if (current[i] != original[i]) {
+                changed[count++] = i;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(changed, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Checks whether any slot that has changed here has also changed in the real inventory.
+     * This must be called from the main thread.
+     * */
+    public boolean hasConflicts() {
+        ItemStack[] original = this.base;
+        for (int slot : getChangedSlots()) {
+            if (!InventoryAPI.isSameSlot(this.inventory.getItem(slot), original[slot])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the changed slots to the real inventory. This must be called from the main thread.
+     * Nothing is written if there are conflicts, and the inventory's version is only bumped if a slot was written.
+     * Throws if any changed slot has also changed in the real inventory since the snapshot.
+     * Throws if the changes would take items reserved in the real inventory, such as ones reserved after the removal.
+     * */
+    public void commit() throws FailedTransactionException {
+        ItemStack[] original = this.base;
+        ItemStack[] current = this.contents.get();
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != original[i] && !InventoryAPI.isSameSlot(this.inventory.getItem(i), original[i])) {
+                throw new FailedTransactionException("That inventory has been changed by something else since it was shadowed.");
+            }
+        }
+        if (InventoryEscrow.hasReservations(this.inventory)) {
+            // Items may have been reserved after they were removed here, so check the inventory as it would end up
+            ItemStack[] result = this.inventory.getContents();
+            for (int i = 0; i < current.length && i < result.length; i++) {
+                if (current[i] != original[i]) {
+                    result[i] = current[i];
+                }
+            }
+            if (!InventoryEscrow.coversReservations(this.inventory, result)) {
+                throw new FailedTransactionException("That inventory no longer holds the items reserved in it.");
+            }
+        }
+        int written = 0;
+        for (int i = 0; i < current.length; i++) {
+            // The real slot still matches the original, so a slot changed back to what it was needs no write
+            if (current[i] != original[i] && !InventoryAPI.isSameSlot(current[i], original[i])) {
+                this.inventory.setItem(i, current[i] == null ? null : current[i].clone());
+                written++;
+            }
+        }
+        // Only a real change bumps the version, so stamps taken elsewhere aren't invalidated for nothing
+        if (written > 0) {
+            InventoryVersions.touch(this.inventory);
+        }
+        this.base = current;
+    }
+
+    /**
+     * Schedules a commit on the next tick, see commit()
+     * This can be called from any thread.
+     * The future completes exceptionally with a FailedTransactionException if there were conflicts.
+     * */
+    public CompletableFuture<Void> commitLater(final Plugin plugin) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            try {
+                commit();
+                future.complete(null);
+            }
+            catch (FailedTransactionException | RuntimeException exception) {
+                future.completeExceptionally(exception);
+            }
+        });
+        return future;
+    }
+
+    private void update(final Mutation mutation) throws FailedTransactionException {
+        while (true) {
+            ItemStack[] current = this.contents.get();
+            ItemStack[] next = current.clone();
+            mutation.apply(next);
+            if (this.contents.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private interface Mutation {
+
+        void apply(ItemStack[] next) throws FailedTransactionException;
+
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the original contents of each inventory slot the first time it is touched,
+ * so that a failed transaction only needs to restore the slots it actually changed
+ * rather than snapshotting and restoring entire inventories.
+ * It is recommended that journals be used from a synchronous scheduler.
+ * */
+public class TransactionJournal {
+
+    private final Map<Inventory, Map<Integer, ItemStack>> originals = new IdentityHashMap<>();
+
+    /**
+     * Records the current contents of a slot, unless that slot has already been recorded.
+     * This must be called before the slot is changed.
+     * Does nothing if the inventory is null.
+     * */
+    public void record(Inventory inventory, int slot) {
+        if (inventory == null) {
+            return;
+        }
+        Map<Integer, ItemStack> slots = this.originals.computeIfAbsent(inventory, key -> new LinkedHashMap<>());
+        if (!slots.containsKey(slot)) {
+            ItemStack current = inventory.getItem(slot);
+            slots.put(slot, current == null ? null : current.clone());
+        }
+    }
+
+    /**
+     * Records a slot and then sets its item.
+     * Does nothing if the inventory is null.
+     * */
+    public void setItem(Inventory inventory, int slot, ItemStack item) {
+        if (inventory != null) {
+            record(inventory, slot);
+            inventory.setItem(slot, item);
+        }
+    }
+
+    /**
+     * Checks whether a slot has been recorded.
+     * */
+    public boolean isRecorded(Inventory inventory, int slot) {
+        Map<Integer, ItemStack> slots = this.originals.get(inventory);
+        return slots != null && slots.containsKey(slot);
+    }
+
+    /**
+     * Gets how many slots have been recorded across every inventory.
+     * */
+    public int size() {
+        int size = 0;
+        for (Map<Integer, ItemStack> slots : this.originals.values()) {
+            size += slots.size();
+        }
+        return size;
+    }
+
+    /**
+     * Restores every recorded slot to its original contents, then clears the journal.
+     * Slots that already hold their original contents are not rewritten.
+     * */
+    public void rollback() {
+        for (Map.Entry<Inventory, Map<Integer, ItemStack>> entry : this.originals.entrySet()) {
+            Inventory inventory = entry.getKey();
+            for (Map.Entry<Integer, ItemStack> slot : entry.getValue().entrySet()) {
+                InventoryAPI.setItemIfChanged(inventory, slot.getKey(), slot.getValue());
+            }
+        }
+        this.originals.clear();
+    }
+
+    /**
+     * Forgets every recorded slot, keeping the changes that have been made.
+     * */
+    public void clear() {
+        this.originals.clear();
+    }
+
+}
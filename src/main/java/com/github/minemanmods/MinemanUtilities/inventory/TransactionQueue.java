@@ -0,0 +1,218 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import javax.validation.constraints.NotNull;
+import java.security.InvalidParameterException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs inventory transactions on the main thread under a time budget per tick.
+ * Transactions can be submitted from any thread, and whatever doesn't fit in one tick's
+ * budget is carried over to the next, so bursts of trades never stall the server.
+ * At least one transaction is run every tick, so the queue always makes progress.
+ * */
+public class TransactionQueue {
+
+    private final Plugin plugin;
+    private final long budgetNanos;
+    private final ConcurrentLinkedQueue<Entry<?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private volatile int lastTickCount;
+    private volatile boolean stopped;
+    private BukkitTask task;
+
+    public TransactionQueue(@NotNull Plugin plugin, long budget, @NotNull TimeUnit unit) {
+        if (plugin == null) {
+            throw new InvalidParameterException("Cannot create a transaction queue without a plugin.");
+        }
+        if (budget <= 0 || unit == null) {
+            throw new InvalidParameterException("Cannot create a transaction queue without a budget.");
+        }
+        this.plugin = plugin;
+        this.budgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * Starts running queued transactions every tick.
+     * Does nothing if the queue has already started.
+     * */
+    public synchronized void start() {
+        this.stopped = false;
+        if (this.task == null) {
+            this.task = Bukkit.getScheduler().runTaskTimer(this.plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stops running queued transactions.
+     * Any transactions still queued are cancelled, and anything submitted until the next start() is rejected.
+     * */
+    public synchronized void stop() {
+        this.stopped = true;
+        if (this.task != null) {
+            this.task.cancel();
+            this.task = null;
+        }
+        Entry<?> entry;
+        while ((entry = this.queue.poll()) != null) {
+            this.depth.decrementAndGet();
+            entry.future.cancel(false);
+        }
+    }
+
+    /**
+     * Queues a transaction between two inventories, see InventoryAPI.inventoryTransaction()
+     * */
+    public CompletableFuture<Void> submit(final Inventory inventory1, final ItemStack[] items1, final Inventory inventory2, final ItemStack[] items2) {
+        return submit(() -> {
+            InventoryAPI.inventoryTransaction(inventory1, items1, inventory2, items2);
+            return null;
+        });
+    }
+
+    /**
+     * Queues a transaction between any number of inventories, see InventoryTransaction
+     * */
+    public CompletableFuture<Void> submit(final InventoryTransaction transaction) {
+        return submit(() -> {
+            transaction.commit();
+            return null;
+        });
+    }
+
+    /**
+     * Queues any work that must run on the main thread.
+     * The returned future completes with the work's result, or exceptionally with whatever it threw.
+     * Cancelling the future before the work runs stops it from running at all.
+     * The future completes exceptionally straight away if the queue has been stopped.
+     * */
+    public <T> CompletableFuture<T> submit(final Callable<T> work) {
+        Entry<T> entry = new Entry<>(work);
+        if (work == null) {
+            entry.future.completeExceptionally(new InvalidParameterException("Cannot queue null work."));
+            return entry.future;
+        }
+        if (this.stopped) {
+            entry.future.completeExceptionally(new IllegalStateException("Cannot queue work on a stopped transaction queue."));
+            return entry.future;
+        }
+        this.depth.incrementAndGet();
+        this.queue.add(entry);
+        // stop() may have drained the queue between the check above and the add
+        if (this.stopped && this.queue.remove(entry)) {
+            this.depth.decrementAndGet();
+            entry.future.completeExceptionally(new IllegalStateException("Cannot queue work on a stopped transaction queue."));
+        }
+        return entry.future;
+    }
+
+    /**
+     * Runs queued transactions until this tick's budget is spent.
+     * This is called every tick once started, and must only be called from the main thread.
+     * */
+    public void tick() {
+        long start = System.nanoTime();
+        int count = 0;
+        Entry<?> entry;
+        while ((entry = this.queue.poll()) != null) {
+            this.depth.decrementAndGet();
+            // The caller has given up on it, such as an auction timing out, so it must not run
+            if (entry.future.isDone()) {
+                continue;
+            }
+            run(entry);
+            count++;
+            if (System.nanoTime() - start >= this.budgetNanos) {
+                break;
+            }
+        }
+        this.lastTickCount = count;
+    }
+
+    /**
+     * Gets how many transactions are waiting to run.
+     * */
+    public int getDepth() {
+        return this.depth.get();
+    }
+
+    /**
+     * Gets how many transactions have completed successfully.
+     * */
+    public long getCompletedCount() {
+        return this.completed.get();
+    }
+
+    /**
+     * Gets how many transactions have failed.
+     * */
+    public long getFailedCount() {
+        return this.failed.get();
+    }
+
+    /**
+     * Gets how many transactions ran in the last tick.
+     * */
+    public int getLastTickCount() {
+        return this.lastTickCount;
+    }
+
+    /**
+     * Gets the average time between a transaction being submitted and finishing, in nanoseconds.
+     * Returns zero if nothing has run yet.
+     * */
+    public long getAverageLatencyNanos() {
+        long runs = this.completed.get() + this.failed.get();
+        return runs == 0 ? 0 : this.totalLatencyNanos.get() / runs;
+    }
+
+    /**
+     * Gets the longest time between a transaction being submitted and finishing, in nanoseconds.
+     * */
+    public long getMaxLatencyNanos() {
+        return this.maxLatencyNanos.get();
+    }
+
+    private <T> void run(final Entry<T> entry) {
+        try {
+            T result = entry.work.call();
+            this.completed.incrementAndGet();
+            entry.future.complete(result);
+        }
+        catch (Exception exception) {
+            this.failed.incrementAndGet();
+            entry.future.completeExceptionally(exception);
+        }
+        long latency = System.nanoTime() - entry.submitted;
+        this.totalLatencyNanos.addAndGet(latency);
+        this.maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+
+    private static class Entry<T> {
+
+        private final Callable<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long submitted = System.nanoTime();
+
+        private Entry(Callable<T> work) {
+            this.work = work;
+        }
+
+    }
+
+}
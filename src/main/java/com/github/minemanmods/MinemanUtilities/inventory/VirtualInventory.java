@@ -0,0 +1,301 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
+import org.bukkit.inventory.ItemStack;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * An inventory backed by a plain array that needs no world or Bukkit inventory, for use in tests, benchmarks,
+ * offline simulations, or as a container larger than any Bukkit inventory.
+ * It also works without a running server: plain Bukkit items are matched by material and durability alone,
+ * as they can't be given meta without one, and items backed by Minecraft compare their tags directly.
+ * It follows the same add, remove and transaction rules as InventoryAPI, including max stack sizes,
+ * by sharing its placement and removal routines, see ItemPlacement and RemovalPlan
+ *
+ * Items are copied on the way in and on the way out, and stored items are replaced rather than
+ * changed, so rolling back a failed transaction is just restoring the previous array of references.
+ * Virtual inventories are not thread safe.
+ * */
+public class VirtualInventory {
+
+    /**
+     * The size of a double chest, and so the default page size.
+     * */
+    public static final int PAGE_SIZE = 54;
+
+    private final ItemStack[] contents;
+    private int maxStackSize = 64;
+
+    public VirtualInventory(int size) {
+        if (size < 1) {
+            throw new InvalidParameterException("Cannot create a virtual inventory without slots.");
+        }
+        this.contents = new ItemStack[size];
+    }
+
+    public VirtualInventory(ItemStack[] contents) {
+        if (!InventoryAPI.isValidInventory(contents)) {
+            throw new InvalidParameterException("Cannot create a virtual inventory without slots.");
+        }
+        this.contents = InventoryAPI.duplicateInventory(contents);
+    }
+
+    /**
+     * Gets the amount of slots.
+     * */
+    public int getSize() {
+        return this.contents.length;
+    }
+
+    /**
+     * Gets the max stack size of every slot, items with smaller max stack sizes will still use their own.
+     * */
+    public int getMaxStackSize() {
+        return this.maxStackSize;
+    }
+
+    /**
+     * Sets the max stack size of every slot.
+     * Does nothing if the size is zero or below.
+     * */
+    public void setMaxStackSize(int maxStackSize) {
+        if (maxStackSize > 0) {
+            this.maxStackSize = maxStackSize;
+        }
+    }
+
+    /**
+     * Gets a copy of the item in a slot.
+     * Returns null if the slot is empty or out of range.
+     * */
+    public ItemStack getItem(int slot) {
+        if (slot < 0 || slot >= this.contents.length || this.contents[slot] == null) {
+            return null;
+        }
+        return this.contents[slot].clone();
+    }
+
+    /**
+     * Sets the item in a slot.
+     * Items that do not fulfill the requirements of isValidItem() are replaced with null.
+     * Does nothing if the slot is out of range.
+     * */
+    public void setItem(int slot, ItemStack item) {
+        if (slot >= 0 && slot < this.contents.length) {
+            this.contents[slot] = ItemAPI.isValidItem(item) ? item.clone() : null;
+        }
+    }
+
+    /**
+     * Gets a copy of every slot.
+     * */
+    public ItemStack[] getContents() {
+        return InventoryAPI.duplicateInventory(this.contents);
+    }
+
+    /**
+     * Sets every slot, slots beyond the end of the given items are cleared.
+     * Does nothing if the items are null.
+     * */
+    public void setContents(ItemStack[] items) {
+        if (items != null) {
+            for (int i = 0; i < this.contents.length; i++) {
+                setItem(i, i < items.length ? items[i] : null);
+            }
+        }
+    }
+
+    /**
+     * Clears every slot.
+     * */
+    public void clear() {
+        Arrays.fill(this.contents, null);
+    }
+
+    /**
+     * Merges similar partial stacks, freeing up slots, see InventoryAPI.compactInventory()
+     * Returns how many slots were changed.
+     * */
+    public int compact() {
+        ItemStack[] compacted = InventoryAPI.compactContents(this.contents, this.maxStackSize);
+        int changed = 0;
+        for (int i = 0; i < this.contents.length; i++) {
+            // Slots that don't change come back as the very same item
+            if (compacted[i] != this.contents[i]) {
+                this.contents[i] = compacted[i];
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Gets how many pages of the given size it takes to show every slot.
+     * Returns zero if the page size is zero or below.
+     * */
+    public int getPageCount(int pageSize) {
+        return pageSize < 1 ? 0 : (this.contents.length + pageSize - 1) / pageSize;
+    }
+
+    /**
+     * Gets a copy of a page of slots, padded with empty slots if the last page is short.
+     * Returns an empty array if the page or page size is out of range.
+     * */
+    public ItemStack[] getPage(int page, int pageSize) {
+        if (page < 0 || page >= getPageCount(pageSize)) {
+            return new ItemStack[0];
+        }
+        ItemStack[] result = new ItemStack[pageSize];
+        int start = page * pageSize;
+        for (int i = 0; i < pageSize && start + i < this.contents.length; i++) {
+            result[i] = getItem(start + i);
+        }
+        return result;
+    }
+
+    /**
+     * Sets a page of slots, such as after a player has edited it in a chest view.
+     * Does nothing if the page or page size is out of range.
+     * Does nothing if the items are null.
+     * */
+    public void setPage(int page, int pageSize, ItemStack[] items) {
+        if (items == null || page < 0 || page >= getPageCount(pageSize)) {
+            return;
+        }
+        int start = page * pageSize;
+        for (int i = 0; i < pageSize && start + i < this.contents.length; i++) {
+            setItem(start + i, i < items.length ? items[i] : null);
+        }
+    }
+
+    /**
+     * Counts how many of an item there are, ignoring the item's own amount.
+     * Returns zero if the item is not valid.
+     * */
+    public int count(ItemStack item) {
+        if (!ItemAPI.isValidItem(item)) {
+            return 0;
+        }
+        int count = 0;
+        for (ItemStack current : this.contents) {
+            if (ItemAPI.isSimilarItem(current, item)) {
+                count += current.getAmount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether there's the required amount of an item.
+     * See InventoryAPI.hasRequiredItem()
+     * */
+    public boolean hasRequiredItem(ItemStack item, int amount) {
+        if (!ItemAPI.isValidItem(item)) {
+            return false;
+        }
+        int count = 0;
+        for (ItemStack current : this.contents) {
+            if (ItemAPI.isSimilarItem(current, item)) {
+                count += current.getAmount();
+                if (count >= amount) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether items would all fit, see InventoryAPI.canFit()
+     * */
+    public boolean canFit(ItemStack... items) {
+        return ItemAPI.isValidItemSet(items) && ItemPlacement.plan(this.contents, this.maxStackSize, items).isComplete();
+    }
+
+    /**
+     * Removes an item stack, either entirely or not at all.
+     * The removal is planned in a single scan, see RemovalPlan
+     * Throws if the item is not valid.
+     * Throws if there isn't the required amount of the item.
+     * */
+    public void removeItem(ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        if (!ItemAPI.isValidItem(item)) {
+            throw new InvalidParameterException("Cannot remove an invalid item from an inventory.");
+        }
+        RemovalPlan.create(this.contents, item).applyTo(this.contents);
+    }
+
+    /**
+     * Adds an item, either entirely or not at all.
+     * See InventoryAPI.addItemToInventory()
+     * Throws if the item is not valid.
+     * Throws if there isn't enough room for the item.
+     * */
+    public void addItem(ItemStack item) throws InvalidParameterException, FailedTransactionException {
+        if (!ItemAPI.isValidItem(item)) {
+            throw new InvalidParameterException("Cannot add an invalid item from an inventory.");
+        }
+        ItemPlacement placement = ItemPlacement.plan(this.contents, this.maxStackSize, item);
+        if (!placement.isComplete()) {
+            throw new FailedTransactionException("Was unable to put that item in that inventory.");
+        }
+        placement.applyTo(this.contents);
+    }
+
+    /**
+     * Performs a transaction between two virtual inventories.
+     * See InventoryAPI.inventoryTransaction()
+     * Both inventories will be restored to their previous states if an error occurs.
+     * Throws if either inventory is null.
+     * Throws if either item arrays are null.
+     * Throws if either item arrays contain invalid items.
+     * */
+    public static void transaction(final VirtualInventory inventory1, final ItemStack[] items1, final VirtualInventory inventory2, final ItemStack[] items2) throws InvalidParameterException, FailedTransactionException {
+        if (inventory1 == null) {
+            throw new InvalidParameterException("Cannot perform transaction, inventory1 is invalid.");
+        }
+        if (items1 == null) {
+            throw new InvalidParameterException("Cannot perform transaction, items1 is null.");
+        }
+        if (inventory2 == null) {
+            throw new InvalidParameterException("Cannot perform transaction, inventory2 is invalid.");
+        }
+        if (items2 == null) {
+            throw new InvalidParameterException("Cannot perform transaction, items2 is null.");
+        }
+        if (!ItemAPI.isValidItemSet(items1)) {
+            throw new InvalidParameterException("Cannot perform transaction, items1 contains an invalid item!");
+        }
+        if (!ItemAPI.isValidItemSet(items2)) {
+            throw new InvalidParameterException("Cannot perform transaction, items2 contains an invalid item!");
+        }
+        // Stored items are never changed in place, so copying the references is a full snapshot
+        ItemStack[] saved1 = inventory1.contents.clone();
+        ItemStack[] saved2 = inventory2.contents.clone();
+        try {
+            for (ItemStack item : items1) {
+                inventory1.removeItem(item);
+            }
+            for (ItemStack item : items2) {
+                inventory2.removeItem(item);
+            }
+            for (ItemStack item : items2) {
+                inventory1.addItem(item);
+            }
+            for (ItemStack item : items1) {
+                inventory2.addItem(item);
+            }
+        }
+        catch (FailedTransactionException exception) {
+            // Restore both inventories to their previous state
+            System.arraycopy(saved1, 0, inventory1.contents, 0, saved1.length);
+            System.arraycopy(saved2, 0, inventory2.contents, 0, saved2.length);
+            throw exception;
+        }
+    }
+
+}
@@ -13,9 +13,23 @@ import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftItemStack;
 import org.bukkit.inventory.ItemStack;
 
 import javax.validation.constraints.NotNull;
+import java.util.HashSet;
+import java.util.Set;
 
 public class NBTCompound {
 
+    /**
+     * How lists that exist on both sides of a merge are combined.
+     * */
+    public enum ListStrategy {
+        /** The overlay's list replaces the existing list. */
+        REPLACE,
+        /** The overlay's elements are added to the end of the existing list. */
+        APPEND,
+        /** The overlay's elements are added to the end of the existing list, unless they're already in it. */
+        UNION
+    }
+
     private NBTTagCompound tag;
 
     public NBTCompound() {
@@ -470,6 +484,71 @@ public class NBTCompound {
         }
     }
 
+    /**
+     * Deeply merges another compound onto this one.
+     * Compounds that exist on both sides are merged key by key, lists that exist on both sides
+     * are combined according to the given strategy, and everything else is replaced by the overlay.
+     * Only the values that change are copied, values that are already equal are left untouched.
+     * Does nothing if the overlay is null.
+     * Does nothing if the strategy is null.
+     * */
+    public void merge(NBTCompound overlay, ListStrategy strategy) {
+        if (overlay != null && strategy != null) {
+            // Merging into ourselves would modify the overlay while walking it
+            NBTTagCompound source = overlay.tag == this.tag ? (NBTTagCompound) overlay.tag.clone() : overlay.tag;
+            merge(this.tag, source, strategy);
+        }
+    }
+
+    private static void merge(NBTTagCompound target, NBTTagCompound overlay, ListStrategy strategy) {
+        for (String key : overlay.c()) {
+            NBTBase value = overlay.get(key);
+            NBTBase current = target.get(key);
+            if (current == null || current.getTypeId() != value.getTypeId()) {
+                target.set(key, value.clone());
+            }
+            else if (value.getTypeId() == 10) {
+                merge((NBTTagCompound) current, (NBTTagCompound) value, strategy);
+            }
+            else if (value.getTypeId() == 9) {
+                mergeList(target, key, (NBTTagList) current, (NBTTagList) value, strategy);
+            }
+            else if (!current.equals(value)) {
+                target.set(key, value.clone());
+            }
+        }
+    }
+
+    private static void mergeList(NBTTagCompound target, String key, NBTTagList current, NBTTagList overlay, ListStrategy strategy) {
+        if (overlay.size() == 0) {
+            if (strategy == ListStrategy.REPLACE && current.size() != 0) {
+                target.set(key, overlay.clone());
+            }
+            return;
+        }
+        // Lists only hold one type, so lists that can't be combined are replaced
+        boolean incompatible = current.size() == 0 || current.i(0).getTypeId() != overlay.i(0).getTypeId();
+        if (strategy == ListStrategy.REPLACE || incompatible) {
+            if (!current.equals(overlay)) {
+                target.set(key, overlay.clone());
+            }
+            return;
+        }
+        Set<NBTBase> existing = null;
+        if (strategy == ListStrategy.UNION) {
+            existing = new HashSet<>();
+            for (int i = 0; i < current.size(); i++) {
+                existing.add(current.i(i));
+            }
+        }
+        for (int i = 0; i < overlay.size(); i++) {
+            NBTBase element = overlay.i(i);
+            if (existing == null || existing.add(element)) {
+                current.add(element.clone());
+            }
+        }
+    }
+
     /**
      * Gets the raw compound.
      * */
@@ -477,4 +556,20 @@ public class NBTCompound {
         return this.tag;
     }
 
+    /**
+     * Gets the compound in binary NBT form.
+     * * Note that the order of keys is not guaranteed, use toCanonicalBytes() if you need to compare the result.
+     * */
+    public byte[] toBytes() {
+        return NBTEncoder.encode(this.tag);
+    }
+
+    /**
+     * Gets the compound in canonical binary NBT form.
+     * Equal compounds will always produce identical bytes.
+     * */
+    public byte[] toCanonicalBytes() {
+        return NBTEncoder.encodeCanonical(this.tag);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.github.minemanmods.MinemanUtilities.nbt;
+
+import net.minecraft.server.v1_12_R1.NBTBase;
+import net.minecraft.server.v1_12_R1.NBTCompressedStreamTools;
+import net.minecraft.server.v1_12_R1.NBTTagByte;
+import net.minecraft.server.v1_12_R1.NBTTagCompound;
+import net.minecraft.server.v1_12_R1.NBTTagDouble;
+import net.minecraft.server.v1_12_R1.NBTTagFloat;
+import net.minecraft.server.v1_12_R1.NBTTagInt;
+import net.minecraft.server.v1_12_R1.NBTTagList;
+import net.minecraft.server.v1_12_R1.NBTTagLong;
+import net.minecraft.server.v1_12_R1.NBTTagShort;
+import net.minecraft.server.v1_12_R1.NBTTagString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class NBTEncoder {
+
+    public static final byte TAG_END = 0;
+    public static final byte TAG_BYTE = 1;
+    public static final byte TAG_SHORT = 2;
+    public static final byte TAG_INT = 3;
+    public static final byte TAG_LONG = 4;
+    public static final byte TAG_FLOAT = 5;
+    public static final byte TAG_DOUBLE = 6;
+    public static final byte TAG_BYTE_ARRAY = 7;
+    public static final byte TAG_STRING = 8;
+    public static final byte TAG_LIST = 9;
+    public static final byte TAG_COMPOUND = 10;
+    public static final byte TAG_INT_ARRAY = 11;
+    public static final byte TAG_LONG_ARRAY = 12;
+
+    /**
+     * Encodes a compound into Minecraft's uncompressed binary NBT format.
+     * The order of keys follows the compound's internal hash map, so two equal
+     * compounds are not guaranteed to produce the same bytes.
+     * Returns an empty array if the tag is null.
+     * */
+    public static byte[] encode(NBTTagCompound tag) {
+        if (tag == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            NBTCompressedStreamTools.a(tag, (DataOutput) new DataOutputStream(bytes));
+        }
+        catch (IOException exception) {
+            throw new IllegalStateException("Could not encode NBT into memory.", exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes a compound into Minecraft's uncompressed binary NBT format, canonically.
+     * Compound keys are written in sorted order and empty lists are always written as
+     * lists of TAG_End, so equal compounds will always produce identical bytes.
+     * The result can still be read back with NBTCompressedStreamTools.
+     * Returns an empty array if the tag is null.
+     * */
+    public static byte[] encodeCanonical(NBTTagCompound tag) {
+        if (tag == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            writeCanonical(tag, new DataOutputStream(bytes));
+        }
+        catch (IOException exception) {
+            throw new IllegalStateException("Could not encode NBT into memory.", exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a compound canonically as a named root tag with an empty name.
+     * See encodeCanonical()
+     * */
+    public static void writeCanonical(NBTTagCompound tag, DataOutput output) throws IOException {
+        output.writeByte(TAG_COMPOUND);
+        output.writeUTF("");
+        writePayload(tag, output);
+    }
+
+    private static void writePayload(NBTBase base, DataOutput output) throws IOException {
+        switch (base.getTypeId()) {
+            case TAG_BYTE:
+                output.writeByte(((NBTTagByte) base).g());
+                break;
+            case TAG_SHORT:
+                output.writeShort(((NBTTagShort) base).f());
+                break;
+            case TAG_INT:
+                output.writeInt(((NBTTagInt) base).e());
+                break;
+            case TAG_LONG:
+                output.writeLong(((NBTTagLong) base).d());
+                break;
+            case TAG_FLOAT:
+                output.writeFloat(((NBTTagFloat) base).i());
+                break;
+            case TAG_DOUBLE:
+                output.writeDouble(((NBTTagDouble) base).asDouble());
+                break;
+            case TAG_STRING:
+                output.writeUTF(((NBTTagString) base).c_());
+                break;
+            case TAG_LIST: {
+                NBTTagList list = (NBTTagList) base;
+                int size = list.size();
+                // Empty lists remember whatever type they once held, normalise that away
+                output.writeByte(size == 0 ? TAG_END : list.i(0).getTypeId());
+                output.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    writePayload(list.i(i), output);
+                }
+                break;
+            }
+            case TAG_COMPOUND: {
+                NBTTagCompound compound = (NBTTagCompound) base;
+                String[] keys = compound.c().toArray(new String[0]);
+                Arrays.sort(keys);
+                for (String key : keys) {
+                    NBTBase value = compound.get(key);
+                    output.writeByte(value.getTypeId());
+                    output.writeUTF(key);
+                    writePayload(value, output);
+                }
+                output.writeByte(TAG_END);
+                break;
+            }
+            default:
+                // Arrays have no unordered parts, so their regular encoding is already canonical
+                output.write(getPayload(base));
+                break;
+        }
+    }
+
+    /**
+     * Gets the raw binary payload of a single tag, without its type or name.
+     * This goes through the regular encoder, so it's best kept for the types that
+     * have no public accessors, such as TAG_Long_Array.
+     * */
+    static byte[] getPayload(NBTBase base) throws IOException {
+        NBTTagCompound wrapper = new NBTTagCompound();
+        wrapper.set("", base);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NBTCompressedStreamTools.a(wrapper, (DataOutput) new DataOutputStream(bytes));
+        byte[] raw = bytes.toByteArray();
+        // Skip the root's type and empty name, the entry's type and empty name, and the end tag
+        return Arrays.copyOfRange(raw, 6, raw.length - 1);
+    }
+
+}
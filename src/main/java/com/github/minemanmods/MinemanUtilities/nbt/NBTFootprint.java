@@ -0,0 +1,221 @@
+package com.github.minemanmods.MinemanUtilities.nbt;
+
+import com.github.minemanmods.MinemanUtilities.NBTAPI;
+import net.minecraft.server.v1_12_R1.NBTBase;
+import net.minecraft.server.v1_12_R1.NBTTagCompound;
+import net.minecraft.server.v1_12_R1.NBTTagList;
+import net.minecraft.server.v1_12_R1.NBTTagString;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates how much heap NBT tag trees retain, broken down by key path.
+ * The estimates assume a 64-bit JVM with compressed oops, which is the default
+ * for heaps under 32GB, and are meant for finding what is bloating item data on
+ * a live server without taking a heap dump, not for exact accounting.
+ *
+ * Key paths are dot separated, list elements are marked with [], for example:
+ * display.Lore[] or ench[].id
+ * The bytes of a path include the bytes of every path beneath it.
+ * */
+public class NBTFootprint {
+
+    private static final int HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int HASH_MAP = 48;
+    private static final int HASH_MAP_NODE = 32;
+    private static final int ARRAY_LIST = 24;
+
+    private final Map<String, Usage> paths = new HashMap<>();
+    private long totalBytes;
+    private int compounds;
+
+    /**
+     * Adds the NBT tag of an item to the analysis.
+     * Does nothing if the item is null or has no tag.
+     * */
+    public void add(ItemStack item) {
+        add(NBTAPI.getRawTag(item));
+    }
+
+    /**
+     * Adds the NBT tags of many items to the analysis.
+     * Does nothing if the items are null.
+     * */
+    public void addAll(Collection<ItemStack> items) {
+        if (items != null) {
+            for (ItemStack item : items) {
+                add(item);
+            }
+        }
+    }
+
+    /**
+     * Adds a compound to the analysis.
+     * Does nothing if the compound is null.
+     * */
+    public void add(NBTCompound compound) {
+        if (compound != null) {
+            add(compound.getRAW());
+        }
+    }
+
+    /**
+     * Adds a raw compound to the analysis.
+     * Does nothing if the compound is null.
+     * */
+    public void add(NBTTagCompound tag) {
+        if (tag != null) {
+            this.totalBytes += measure(tag, null);
+            this.compounds++;
+        }
+    }
+
+    /**
+     * Gets the estimated bytes retained by every compound added so far.
+     * */
+    public long getTotalBytes() {
+        return this.totalBytes;
+    }
+
+    /**
+     * Gets the amount of compounds added so far.
+     * */
+    public int getCompoundCount() {
+        return this.compounds;
+    }
+
+    /**
+     * Gets the estimated bytes retained by a key path across every compound.
+     * Returns zero if the path was never seen.
+     * */
+    public long getBytes(String path) {
+        Usage usage = this.paths.get(path);
+        return usage == null ? 0 : usage.bytes;
+    }
+
+    /**
+     * Gets how many times a key path was seen across every compound.
+     * Returns zero if the path was never seen.
+     * */
+    public int getOccurrences(String path) {
+        Usage usage = this.paths.get(path);
+        return usage == null ? 0 : usage.occurrences;
+    }
+
+    /**
+     * Gets the estimated bytes of every key path, largest first.
+     * */
+    public Map<String, Long> getReport() {
+        List<Map.Entry<String, Usage>> entries = new ArrayList<>(this.paths.entrySet());
+        entries.sort((lhs, rhs) -> Long.compare(rhs.getValue().bytes, lhs.getValue().bytes));
+        Map<String, Long> report = new LinkedHashMap<>();
+        for (Map.Entry<String, Usage> entry : entries) {
+            report.put(entry.getKey(), entry.getValue().bytes);
+        }
+        return report;
+    }
+
+    /**
+     * Clears the analysis.
+     * */
+    public void clear() {
+        this.paths.clear();
+        this.totalBytes = 0;
+        this.compounds = 0;
+    }
+
+    /**
+     * Estimates the bytes retained by a single tag and everything beneath it.
+     * Returns zero if the tag is null.
+     * */
+    public static long estimate(NBTBase tag) {
+        return tag == null ? 0 : new NBTFootprint().measure(tag, null);
+    }
+
+    private long measure(NBTBase tag, String path) {
+        switch (tag.getTypeId()) {
+            case NBTEncoder.TAG_BYTE:
+            case NBTEncoder.TAG_SHORT:
+            case NBTEncoder.TAG_INT:
+            case NBTEncoder.TAG_FLOAT:
+                return align(HEADER + 4);
+            case NBTEncoder.TAG_LONG:
+            case NBTEncoder.TAG_DOUBLE:
+                return align(HEADER + 8);
+            case NBTEncoder.TAG_STRING:
+                return align(HEADER + REFERENCE) + measureString(((NBTTagString) tag).c_());
+            case NBTEncoder.TAG_LIST: {
+                NBTTagList list = (NBTTagList) tag;
+                int size = list.size();
+                String elementPath = path == null ? "[]" : path + "[]";
+                // Tag, its backing ArrayList, and the ArrayList's element array
+                long bytes = align(HEADER + REFERENCE + 1) + ARRAY_LIST + align(HEADER + 4 + REFERENCE * size);
+                for (int i = 0; i < size; i++) {
+                    bytes += record(elementPath, measure(list.i(i), elementPath));
+                }
+                return bytes;
+            }
+            case NBTEncoder.TAG_COMPOUND: {
+                NBTTagCompound compound = (NBTTagCompound) tag;
+                int size = compound.c().size();
+                // Tag, its backing HashMap, and the HashMap's table at the default load factor
+                long bytes = align(HEADER + REFERENCE) + HASH_MAP + align(HEADER + 4 + REFERENCE * tableSize(size));
+                for (String key : compound.c()) {
+                    String keyPath = path == null ? key : path + "." + key;
+                    long entry = HASH_MAP_NODE + measureString(key) + measure(compound.get(key), keyPath);
+                    bytes += record(keyPath, entry);
+                }
+                return bytes;
+            }
+            default:
+                // Arrays, measured by the length of their payload minus the length prefix
+                try {
+                    return align(HEADER + REFERENCE) + align(HEADER + 4 + NBTEncoder.getPayload(tag).length - 4);
+                }
+                catch (IOException exception) {
+                    return align(HEADER + REFERENCE);
+                }
+        }
+    }
+
+    private long record(String path, long bytes) {
+        Usage usage = this.paths.computeIfAbsent(path, key -> new Usage());
+        usage.bytes += bytes;
+        usage.occurrences++;
+        return bytes;
+    }
+
+    private static long measureString(String string) {
+        // String object with its hash, plus its backing char array
+        return align(HEADER + REFERENCE + 4) + align(HEADER + 4 + 2 * string.length());
+    }
+
+    private static int tableSize(int entries) {
+        if (entries == 0) {
+            return 0;
+        }
+        int size = 16;
+        while (size * 3 / 4 < entries) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static class Usage {
+        private long bytes;
+        private int occurrences;
+    }
+
+}
@@ -0,0 +1,288 @@
+package com.github.minemanmods.MinemanUtilities.nbt;
+
+import net.minecraft.server.v1_12_R1.NBTBase;
+import net.minecraft.server.v1_12_R1.NBTTagByte;
+import net.minecraft.server.v1_12_R1.NBTTagCompound;
+import net.minecraft.server.v1_12_R1.NBTTagDouble;
+import net.minecraft.server.v1_12_R1.NBTTagFloat;
+import net.minecraft.server.v1_12_R1.NBTTagInt;
+import net.minecraft.server.v1_12_R1.NBTTagList;
+import net.minecraft.server.v1_12_R1.NBTTagLong;
+import net.minecraft.server.v1_12_R1.NBTTagShort;
+import net.minecraft.server.v1_12_R1.NBTTagString;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams NBT into JSON Lines, one JSON object per compound, straight from either
+ * a tag tree or from the raw binary format. Nothing is buffered beyond the writer
+ * itself, so memory use stays constant however many records are written.
+ *
+ * Numbers become JSON numbers, non-finite floats become null, lists and arrays become
+ * JSON arrays, and compounds become JSON objects.
+ * */
+public class NBTJsonWriter implements Closeable, Flushable {
+
+    private final Writer writer;
+    private long records;
+
+    public NBTJsonWriter(@NotNull Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+    }
+
+    /**
+     * Writes a compound as a single JSON line.
+     * Does nothing if the compound is null.
+     * */
+    public void write(NBTCompound compound) throws IOException {
+        if (compound != null) {
+            write(compound.getRAW());
+        }
+    }
+
+    /**
+     * Writes a raw compound as a single JSON line.
+     * Does nothing if the compound is null.
+     * */
+    public void write(NBTTagCompound tag) throws IOException {
+        if (tag != null) {
+            writeTag(tag);
+            endRecord();
+        }
+    }
+
+    /**
+     * Reads a single named root tag from uncompressed binary NBT and writes it as a JSON line.
+     * Wrap the input in a GZIPInputStream first if it is compressed.
+     * @return False if the input had already ended, true otherwise.
+     * */
+    public boolean writeRaw(DataInput input) throws IOException {
+        byte type;
+        try {
+            type = input.readByte();
+        }
+        catch (EOFException exception) {
+            return false;
+        }
+        if (type == NBTEncoder.TAG_END) {
+            return false;
+        }
+        input.readUTF();
+        writeRawPayload(type, input);
+        endRecord();
+        return true;
+    }
+
+    /**
+     * Gets the amount of records written so far.
+     * */
+    public long getRecordCount() {
+        return this.records;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+    private void endRecord() throws IOException {
+        this.writer.write('\n');
+        this.records++;
+    }
+
+    private void writeTag(NBTBase tag) throws IOException {
+        switch (tag.getTypeId()) {
+            case NBTEncoder.TAG_BYTE:
+                this.writer.write(Byte.toString(((NBTTagByte) tag).g()));
+                break;
+            case NBTEncoder.TAG_SHORT:
+                this.writer.write(Short.toString(((NBTTagShort) tag).f()));
+                break;
+            case NBTEncoder.TAG_INT:
+                this.writer.write(Integer.toString(((NBTTagInt) tag).e()));
+                break;
+            case NBTEncoder.TAG_LONG:
+                this.writer.write(Long.toString(((NBTTagLong) tag).d()));
+                break;
+            case NBTEncoder.TAG_FLOAT:
+                writeFloat(((NBTTagFloat) tag).i());
+                break;
+            case NBTEncoder.TAG_DOUBLE:
+                writeDouble(((NBTTagDouble) tag).asDouble());
+                break;
+            case NBTEncoder.TAG_STRING:
+                writeString(((NBTTagString) tag).c_());
+                break;
+            case NBTEncoder.TAG_LIST: {
+                NBTTagList list = (NBTTagList) tag;
+                this.writer.write('[');
+                for (int i = 0; i < list.size(); i++) {
+                    if (i > 0) {
+                        this.writer.write(',');
+                    }
+                    writeTag(list.i(i));
+                }
+                this.writer.write(']');
+                break;
+            }
+            case NBTEncoder.TAG_COMPOUND: {
+                NBTTagCompound compound = (NBTTagCompound) tag;
+                this.writer.write('{');
+                boolean first = true;
+                for (String key : compound.c()) {
+                    if (!first) {
+                        this.writer.write(',');
+                    }
+                    first = false;
+                    writeString(key);
+                    this.writer.write(':');
+                    writeTag(compound.get(key));
+                }
+                this.writer.write('}');
+                break;
+            }
+            default:
+                // Arrays have no public accessors for every type, so read them from their payload
+                writeRawPayload(tag.getTypeId(), new DataInputStream(new ByteArrayInputStream(NBTEncoder.getPayload(tag))));
+                break;
+        }
+    }
+
+    private void writeRawPayload(byte type, DataInput input) throws IOException {
+        switch (type) {
+            case NBTEncoder.TAG_END:
+                this.writer.write("null");
+                break;
+            case NBTEncoder.TAG_BYTE:
+                this.writer.write(Byte.toString(input.readByte()));
+                break;
+            case NBTEncoder.TAG_SHORT:
+                this.writer.write(Short.toString(input.readShort()));
+                break;
+            case NBTEncoder.TAG_INT:
+                this.writer.write(Integer.toString(input.readInt()));
+                break;
+            case NBTEncoder.TAG_LONG:
+                this.writer.write(Long.toString(input.readLong()));
+                break;
+            case NBTEncoder.TAG_FLOAT:
+                writeFloat(input.readFloat());
+                break;
+            case NBTEncoder.TAG_DOUBLE:
+                writeDouble(input.readDouble());
+                break;
+            case NBTEncoder.TAG_STRING:
+                writeString(input.readUTF());
+                break;
+            case NBTEncoder.TAG_LIST: {
+                byte elementType = input.readByte();
+                int size = input.readInt();
+                this.writer.write('[');
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        this.writer.write(',');
+                    }
+                    writeRawPayload(elementType, input);
+                }
+                this.writer.write(']');
+                break;
+            }
+            case NBTEncoder.TAG_COMPOUND: {
+                this.writer.write('{');
+                boolean first = true;
+                byte entryType;
+                while ((entryType = input.readByte()) != NBTEncoder.TAG_END) {
+                    if (!first) {
+                        this.writer.write(',');
+                    }
+                    first = false;
+                    writeString(input.readUTF());
+                    this.writer.write(':');
+                    writeRawPayload(entryType, input);
+                }
+                this.writer.write('}');
+                break;
+            }
+            case NBTEncoder.TAG_BYTE_ARRAY:
+            case NBTEncoder.TAG_INT_ARRAY:
+            case NBTEncoder.TAG_LONG_ARRAY: {
+                int size = input.readInt();
+                this.writer.write('[');
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        this.writer.write(',');
+                    }
+                    if (type == NBTEncoder.TAG_BYTE_ARRAY) {
+                        this.writer.write(Byte.toString(input.readByte()));
+                    }
+                    else if (type == NBTEncoder.TAG_INT_ARRAY) {
+                        this.writer.write(Integer.toString(input.readInt()));
+                    }
+                    else {
+                        this.writer.write(Long.toString(input.readLong()));
+                    }
+                }
+                this.writer.write(']');
+                break;
+            }
+            default:
+                throw new IOException("Unknown NBT tag type: " + type);
+        }
+    }
+
+    private void writeFloat(float value) throws IOException {
+        this.writer.write(Float.isFinite(value) ? Float.toString(value) : "null");
+    }
+
+    private void writeDouble(double value) throws IOException {
+        this.writer.write(Double.isFinite(value) ? Double.toString(value) : "null");
+    }
+
+    private void writeString(String value) throws IOException {
+        this.writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            switch (character) {
+                case '"':
+                    this.writer.write("\\\"");
+                    break;
+                case '\\':
+                    this.writer.write("\\\\");
+                    break;
+                case '\n':
+                    this.writer.write("\\n");
+                    break;
+                case '\r':
+                    this.writer.write("\\r");
+                    break;
+                case '\t':
+                    this.writer.write("\\t");
+                    break;
+                default:
+                    if (character < 0x20) {
+                        this.writer.write(String.format("\\u%04x", (int) character));
+                    }
+                    else {
+                        this.writer.write(character);
+                    }
+                    break;
+            }
+        }
+        this.writer.write('"');
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.github.minemanmods.MinemanUtilities;
+
+import net.minecraft.server.v1_12_R1.DispenserRegistry;
+import net.minecraft.server.v1_12_R1.Item;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftItemFactory;
+import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftItemStack;
+import org.bukkit.craftbukkit.v1_12_R1.util.CraftMagicNumbers;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.logging.Logger;
+
+/**
+ * A stand-in server for tests and benchmarks, so items, metas and custom inventories work without starting Minecraft.
+ * Only the item factory, logger and names are implemented, every other call returns null, zero or false.
+ * */
+public class TestServer implements InvocationHandler {
+
+    private static final Logger LOGGER = Logger.getLogger("TestServer");
+
+    /**
+     * Bootstraps the Minecraft registries and installs the stand-in server.
+     * Does nothing if a server has already been installed.
+     * */
+    public static synchronized void install() {
+        if (Bukkit.getServer() != null) {
+            return;
+        }
+        DispenserRegistry.c();
+        Bukkit.setServer((Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[] {Server.class}, new TestServer()));
+    }
+
+    /**
+     * Creates an item backed by a Minecraft item stack, the same as items taken out of a real inventory.
+     * */
+    @SuppressWarnings("deprecation")
+    public static ItemStack item(final Material material, final int amount) {
+        Item item = CraftMagicNumbers.getItem(material);
+        return CraftItemStack.asCraftMirror(new net.minecraft.server.v1_12_R1.ItemStack(item, amount));
+    }
+
+    /**
+     * Creates an item with a display name, so that it has meta.
+     * */
+    public static ItemStack named(final Material material, final int amount, final String name) {
+        ItemStack item = item(material, amount);
+        ItemMeta meta = item.getItemMeta();
+        meta.setDisplayName(name);
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getItemFactory":
+                return CraftItemFactory.instance();
+            case "getLogger":
+                return LOGGER;
+            case "getName":
+                return "TestServer";
+            case "getVersion":
+            case "getBukkitVersion":
+                return "test";
+            case "isPrimaryThread":
+                return true;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "TestServer";
+            default:
+                return getDefault(method.getReturnType());
+        }
+    }
+
+    private static Object getDefault(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.github.minemanmods.MinemanUtilities.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * A tiny harness that times an operation and measures how much it allocates per run.
+ * Allocation is read from the JVM's per-thread allocation counter, so it needs a HotSpot based JVM.
+ * This is deliberately simple, results are a rough comparison rather than a rigorous measurement.
+ * */
+public class Benchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Runs an operation to warm up, then measures and prints its time and allocation per run.
+     * */
+    public static Result run(final String name, final int iterations, final Operation operation) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = THREADS.getThreadAllocatedBytes(threadId) - allocated;
+        Result result = new Result(name, nanos / (double) iterations, allocated / (double) iterations);
+        System.out.println(result);
+        return result;
+    }
+
+    public interface Operation {
+
+        void run() throws Exception;
+
+    }
+
+    public static class Result {
+
+        private final String name;
+        private final double nanosPerRun;
+        private final double bytesPerRun;
+
+        private Result(String name, double nanosPerRun, double bytesPerRun) {
+            this.name = name;
+            this.nanosPerRun = nanosPerRun;
+            this.bytesPerRun = bytesPerRun;
+        }
+
+        public double getNanosPerRun() {
+            return this.nanosPerRun;
+        }
+
+        public double getBytesPerRun() {
+            return this.bytesPerRun;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-48s %12.0f ns/op %12.0f B/op", this.name, this.nanosPerRun, this.bytesPerRun);
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.github.minemanmods.MinemanUtilities.benchmark;
+
+import com.github.minemanmods.MinemanUtilities.TestServer;
+import com.github.minemanmods.MinemanUtilities.inventory.VirtualInventory;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Locale;
+
+/**
+ * Measures compaction on a double chest sized VirtualInventory and on a paged one ten times larger,
+ * to show that compaction time grows with the slot count rather than with its square.
+ * Every slot starts as a partial stack, spread across a handful of materials and named items, like a messy vault.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.github.minemanmods.MinemanUtilities.benchmark.CompactionBenchmark
+ * */
+public class CompactionBenchmark {
+
+    private static final int ITERATIONS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        TestServer.install();
+        int[] sizes = {VirtualInventory.PAGE_SIZE, VirtualInventory.PAGE_SIZE * 10};
+        double[] nanosPerSlot = new double[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            int size = sizes[i];
+            ItemStack[] fragmented = createFragmented(size);
+            VirtualInventory inventory = new VirtualInventory(size);
+            // Refilling the inventory is part of every run, so it's measured on its own and taken away
+            Benchmark.Result refill = Benchmark.run("Refill " + size + " slots", ITERATIONS / (i + 1), () -> inventory.setContents(fragmented));
+            Benchmark.Result compact = Benchmark.run("Refill and compact " + size + " slots", ITERATIONS / (i + 1), () -> {
+                inventory.setContents(fragmented);
+                inventory.compact();
+            });
+            nanosPerSlot[i] = (compact.getNanosPerRun() - refill.getNanosPerRun()) / size;
+        }
+        System.out.println(String.format(Locale.ROOT, "Compaction: %.0f ns per slot at %d slots, %.0f ns per slot at %d slots.",
+                nanosPerSlot[0], sizes[0], nanosPerSlot[1], sizes[1]));
+    }
+
+    private static ItemStack[] createFragmented(int size) {
+        Material[] materials = {Material.COBBLESTONE, Material.DIRT, Material.IRON_INGOT, Material.BREAD, Material.TORCH};
+        ItemStack[] contents = new ItemStack[size];
+        for (int slot = 0; slot < size; slot++) {
+            if (slot % 11 == 0) {
+                contents[slot] = TestServer.named(Material.PAPER, 5, "Voucher " + (slot % 3));
+            }
+            else {
+                contents[slot] = TestServer.item(materials[slot % materials.length], 1 + slot % 40);
+            }
+        }
+        return contents;
+    }
+
+}
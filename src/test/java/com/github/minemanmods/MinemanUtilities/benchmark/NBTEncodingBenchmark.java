@@ -0,0 +1,82 @@
+package com.github.minemanmods.MinemanUtilities.benchmark;
+
+import com.github.minemanmods.MinemanUtilities.nbt.NBTEncoder;
+import net.minecraft.server.v1_12_R1.NBTTagCompound;
+import net.minecraft.server.v1_12_R1.NBTTagList;
+import net.minecraft.server.v1_12_R1.NBTTagString;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Compares NBTEncoder's canonical encoding against Minecraft's regular encoding of the same compounds.
+ * The compounds look like the tags of enchanted, named and lored items, since those are what gets hashed and compared.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.github.minemanmods.MinemanUtilities.benchmark.NBTEncodingBenchmark
+ * */
+public class NBTEncodingBenchmark {
+
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        NBTTagCompound small = createTag(1, 0);
+        NBTTagCompound large = createTag(5, 8);
+        // Equal compounds built in a different order must still encode to the same bytes
+        if (!Arrays.equals(NBTEncoder.encodeCanonical(large), NBTEncoder.encodeCanonical(createTagReversed(5, 8)))) {
+            throw new IllegalStateException("Equal compounds did not encode to the same canonical bytes.");
+        }
+
+        Benchmark.Result smallRegular = Benchmark.run("Regular encode, small tag", ITERATIONS, () -> NBTEncoder.encode(small));
+        Benchmark.Result smallCanonical = Benchmark.run("Canonical encode, small tag", ITERATIONS, () -> NBTEncoder.encodeCanonical(small));
+        Benchmark.Result largeRegular = Benchmark.run("Regular encode, large tag", ITERATIONS, () -> NBTEncoder.encode(large));
+        Benchmark.Result largeCanonical = Benchmark.run("Canonical encode, large tag", ITERATIONS, () -> NBTEncoder.encodeCanonical(large));
+
+        System.out.println(String.format(Locale.ROOT, "Canonical encoding costs %.2fx the time on small tags and %.2fx on large tags.",
+                smallCanonical.getNanosPerRun() / smallRegular.getNanosPerRun(),
+                largeCanonical.getNanosPerRun() / largeRegular.getNanosPerRun()));
+    }
+
+    private static NBTTagCompound createTag(int enchantments, int loreLines) {
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.set("ench", createEnchantments(enchantments));
+        tag.set("display", createDisplay(loreLines));
+        tag.setInt("RepairCost", 3);
+        tag.setBoolean("Unbreakable", true);
+        tag.setIntArray("Owners", new int[] {1, 2, 3, 4});
+        return tag;
+    }
+
+    private static NBTTagCompound createTagReversed(int enchantments, int loreLines) {
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setIntArray("Owners", new int[] {1, 2, 3, 4});
+        tag.setBoolean("Unbreakable", true);
+        tag.setInt("RepairCost", 3);
+        tag.set("display", createDisplay(loreLines));
+        tag.set("ench", createEnchantments(enchantments));
+        return tag;
+    }
+
+    private static NBTTagList createEnchantments(int count) {
+        NBTTagList enchantments = new NBTTagList();
+        for (int i = 0; i < count; i++) {
+            NBTTagCompound enchantment = new NBTTagCompound();
+            enchantment.setShort("id", (short) i);
+            enchantment.setShort("lvl", (short) (i % 5 + 1));
+            enchantments.add(enchantment);
+        }
+        return enchantments;
+    }
+
+    private static NBTTagCompound createDisplay(int loreLines) {
+        NBTTagCompound display = new NBTTagCompound();
+        display.setString("Name", "Benchmark Sword");
+        NBTTagList lore = new NBTTagList();
+        for (int i = 0; i < loreLines; i++) {
+            lore.add(new NBTTagString("Line " + i + " of the lore"));
+        }
+        display.set("Lore", lore);
+        return display;
+    }
+
+}
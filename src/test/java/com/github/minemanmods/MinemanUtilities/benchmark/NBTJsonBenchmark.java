@@ -0,0 +1,108 @@
+package com.github.minemanmods.MinemanUtilities.benchmark;
+
+import com.github.minemanmods.MinemanUtilities.nbt.NBTEncoder;
+import com.github.minemanmods.MinemanUtilities.nbt.NBTJsonWriter;
+import net.minecraft.server.v1_12_R1.NBTTagCompound;
+import net.minecraft.server.v1_12_R1.NBTTagList;
+import net.minecraft.server.v1_12_R1.NBTTagString;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Measures NBTJsonWriter's throughput over millions of records, both from tag trees and from raw binary NBT.
+ * Output goes to a writer that only counts characters, so the numbers are the writer's own cost rather than disk speed.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.github.minemanmods.MinemanUtilities.benchmark.NBTJsonBenchmark
+ * */
+public class NBTJsonBenchmark {
+
+    private static final int RECORDS = 1_000;
+    private static final int PASSES = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        NBTTagCompound[] tags = new NBTTagCompound[RECORDS];
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        for (int i = 0; i < RECORDS; i++) {
+            tags[i] = createRecord(i);
+            raw.write(NBTEncoder.encode(tags[i]));
+        }
+        byte[] rawBytes = raw.toByteArray();
+        CountingWriter output = new CountingWriter();
+
+        // Each pass writes every record once, so every measurement covers a million records
+        Benchmark.Result tree = Benchmark.run("Tag trees to JSON Lines, per 1000 records", PASSES, () -> {
+            NBTJsonWriter writer = new NBTJsonWriter(output);
+            for (NBTTagCompound tag : tags) {
+                writer.write(tag);
+            }
+            writer.flush();
+        });
+        Benchmark.Result binary = Benchmark.run("Raw binary NBT to JSON Lines, per 1000 records", PASSES, () -> {
+            NBTJsonWriter writer = new NBTJsonWriter(output);
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(rawBytes));
+            while (writer.writeRaw(input)) {
+                // Keep streaming until the input runs out
+            }
+            writer.flush();
+        });
+
+        double charsPerRecord = output.getCount() / (4.0 * PASSES * RECORDS);
+        System.out.println(String.format(Locale.ROOT, "Tag trees: %.0f records/s, raw binary: %.0f records/s, %.0f characters per record.",
+                RECORDS * 1e9 / tree.getNanosPerRun(),
+                RECORDS * 1e9 / binary.getNanosPerRun(),
+                charsPerRecord));
+    }
+
+    private static NBTTagCompound createRecord(int id) {
+        NBTTagCompound record = new NBTTagCompound();
+        record.setLong("id", id);
+        record.setString("owner", "Player" + (id % 100));
+        record.setDouble("price", id * 1.25);
+        record.setBoolean("sold", id % 3 == 0);
+        NBTTagCompound item = new NBTTagCompound();
+        item.setString("id", "minecraft:diamond_sword");
+        item.setByte("Count", (byte) 1);
+        item.setShort("Damage", (short) (id % 1561));
+        NBTTagCompound display = new NBTTagCompound();
+        display.setString("Name", "Sword \"" + id + "\"");
+        NBTTagList lore = new NBTTagList();
+        lore.add(new NBTTagString("Listed on the auction house"));
+        lore.add(new NBTTagString("Seller: Player" + (id % 100)));
+        display.set("Lore", lore);
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.set("display", display);
+        tag.setIntArray("history", new int[] {id, id + 1, id + 2});
+        item.set("tag", tag);
+        record.set("item", item);
+        return record;
+    }
+
+    private static class CountingWriter extends Writer {
+
+        private long count;
+
+        private long getCount() {
+            return this.count;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            this.count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
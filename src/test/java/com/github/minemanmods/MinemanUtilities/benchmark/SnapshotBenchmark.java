@@ -0,0 +1,82 @@
+package com.github.minemanmods.MinemanUtilities.benchmark;
+
+import com.github.minemanmods.MinemanUtilities.TestServer;
+import com.github.minemanmods.MinemanUtilities.inventory.InventorySnapshot;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Compares InventorySnapshot against Bukkit's YAML serialisation of a double chest, by size and by throughput.
+ * The chest mixes plain stacks, named items and enchanted tools, with a few empty slots, like a typical vault.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.github.minemanmods.MinemanUtilities.benchmark.SnapshotBenchmark
+ * */
+public class SnapshotBenchmark {
+
+    private static final int ITERATIONS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        TestServer.install();
+        ItemStack[] contents = createVault();
+
+        byte[] binary = InventorySnapshot.encode(contents);
+        String yaml = toYaml(contents);
+        int yamlSize = yaml.getBytes(StandardCharsets.UTF_8).length;
+        if (!Arrays.equals(InventorySnapshot.decode(binary), contents)) {
+            throw new IllegalStateException("The snapshot did not decode back into the same items.");
+        }
+
+        Benchmark.Result binaryEncode = Benchmark.run("InventorySnapshot.encode", ITERATIONS, () -> InventorySnapshot.encode(contents));
+        Benchmark.Result yamlEncode = Benchmark.run("YamlConfiguration.saveToString", ITERATIONS, () -> toYaml(contents));
+        Benchmark.Result binaryDecode = Benchmark.run("InventorySnapshot.decode", ITERATIONS, () -> InventorySnapshot.decode(binary));
+        Benchmark.Result yamlDecode = Benchmark.run("YamlConfiguration.loadFromString", ITERATIONS, () -> fromYaml(yaml));
+
+        System.out.println(String.format(Locale.ROOT, "Size: %d bytes binary, %d bytes YAML, %.1fx smaller.",
+                binary.length, yamlSize, yamlSize / (double) binary.length));
+        System.out.println(String.format(Locale.ROOT, "Encode %.1fx faster, decode %.1fx faster.",
+                yamlEncode.getNanosPerRun() / binaryEncode.getNanosPerRun(),
+                yamlDecode.getNanosPerRun() / binaryDecode.getNanosPerRun()));
+    }
+
+    private static ItemStack[] createVault() {
+        Material[] materials = {Material.COBBLESTONE, Material.LOG, Material.IRON_INGOT, Material.GOLD_INGOT, Material.REDSTONE};
+        ItemStack[] contents = new ItemStack[54];
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (slot % 7 == 6) {
+                continue;
+            }
+            if (slot % 5 == 0) {
+                ItemStack pickaxe = TestServer.named(Material.DIAMOND_PICKAXE, 1, "Pickaxe " + slot);
+                pickaxe.addUnsafeEnchantment(Enchantment.DIG_SPEED, 4);
+                contents[slot] = pickaxe;
+            }
+            else if (slot % 3 == 0) {
+                contents[slot] = TestServer.named(Material.PAPER, 16, "Voucher " + slot);
+            }
+            else {
+                contents[slot] = TestServer.item(materials[slot % materials.length], 64);
+            }
+        }
+        return contents;
+    }
+
+    private static String toYaml(ItemStack[] contents) {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("contents", Arrays.asList(contents));
+        return yaml.saveToString();
+    }
+
+    private static Object fromYaml(String text) throws Exception {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.loadFromString(text);
+        return yaml.getList("contents");
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.github.minemanmods.MinemanUtilities.benchmark;
+
+import com.github.minemanmods.MinemanUtilities.InventoryAPI;
+import com.github.minemanmods.MinemanUtilities.ItemAPI;
+import com.github.minemanmods.MinemanUtilities.TestServer;
+import com.github.minemanmods.MinemanUtilities.inventory.TransactionJournal;
+import org.bukkit.Material;
+import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftInventoryCustom;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Locale;
+
+/**
+ * Compares the rollback state a typical shop trade needs, before and after the slot-level journal.
+ * Before, every transaction copied both inventories in full with duplicateInventory() just in case it failed.
+ * Now, a TransactionJournal only copies the slots the trade actually touches.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.github.minemanmods.MinemanUtilities.benchmark.TransactionBenchmark
+ * */
+public class TransactionBenchmark {
+
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        TestServer.install();
+        Inventory buyer = new CraftInventoryCustom(null, 36);
+        Inventory shop = new CraftInventoryCustom(null, 27);
+        fill(buyer, Material.EMERALD);
+        fill(shop, Material.DIAMOND);
+        ItemStack[] price = {TestServer.item(Material.EMERALD, 5)};
+        ItemStack[] goods = {TestServer.item(Material.DIAMOND, 2)};
+
+        // The slots a single trade writes, worked out the same way the trade itself does
+        int[] buyerSlots = touchedSlots(buyer, price[0], goods[0]);
+        int[] shopSlots = touchedSlots(shop, goods[0], price[0]);
+
+        Benchmark.Result full = Benchmark.run("Full copy of both inventories (before)", ITERATIONS, () -> {
+            InventoryAPI.duplicateInventory(buyer.getContents());
+            InventoryAPI.duplicateInventory(shop.getContents());
+        });
+        Benchmark.Result journal = Benchmark.run("Journal of the touched slots (after)", ITERATIONS, () -> {
+            TransactionJournal trade = new TransactionJournal();
+            for (int slot : buyerSlots) {
+                trade.record(buyer, slot);
+            }
+            for (int slot : shopSlots) {
+                trade.record(shop, slot);
+            }
+        });
+        // A trade followed by the reverse trade, so the inventories end every run as they started
+        Benchmark.run("Round trip of two journaled trades", ITERATIONS / 10, () -> {
+            InventoryAPI.inventoryTransaction(buyer, price, shop, goods);
+            InventoryAPI.inventoryTransaction(shop, price, buyer, goods);
+        });
+
+        System.out.println(String.format(Locale.ROOT, "Rollback state: %d slots before, %d slots after, %.1fx less allocation.",
+                buyer.getSize() + shop.getSize(),
+                buyerSlots.length + shopSlots.length,
+                full.getBytesPerRun() / Math.max(1, journal.getBytesPerRun())));
+    }
+
+    private static void fill(Inventory inventory, Material currency) {
+        Material[] materials = {Material.COBBLESTONE, Material.DIRT, Material.TORCH, Material.BREAD, Material.IRON_INGOT};
+        for (int slot = 0; slot < inventory.getSize(); slot++) {
+            if (slot % 9 == 8) {
+                // Leave a gap in every row, as real inventories have
+                continue;
+            }
+            if (slot < 3) {
+                inventory.setItem(slot, TestServer.item(currency, 32));
+            }
+            else if (slot % 5 == 0) {
+                inventory.setItem(slot, TestServer.named(Material.DIAMOND_SWORD, 1, "Sword " + slot));
+            }
+            else {
+                inventory.setItem(slot, TestServer.item(materials[slot % materials.length], 48));
+            }
+        }
+    }
+
+    private static int[] touchedSlots(Inventory inventory, ItemStack removed, ItemStack added) throws Exception {
+        int[] removedSlots = InventoryAPI.planRemoval(inventory, removed).getSlots();
+        int addedSlot = -1;
+        ItemStack[] contents = inventory.getStorageContents();
+        for (int slot = 0; slot < contents.length && addedSlot < 0; slot++) {
+            if (ItemAPI.isSimilarItem(contents[slot], added) && contents[slot].getAmount() < contents[slot].getMaxStackSize()) {
+                addedSlot = slot;
+            }
+        }
+        for (int slot = 0; slot < contents.length && addedSlot < 0; slot++) {
+            if (!ItemAPI.isValidItem(contents[slot])) {
+                addedSlot = slot;
+            }
+        }
+        int[] slots = new int[removedSlots.length + 1];
+        System.arraycopy(removedSlots, 0, slots, 0, removedSlots.length);
+        slots[removedSlots.length] = addedSlot;
+        return slots;
+    }
+
+}
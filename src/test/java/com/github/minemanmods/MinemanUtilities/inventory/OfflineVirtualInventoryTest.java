@@ -0,0 +1,99 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.inventory.ItemStack;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that virtual inventories work with no server at all, as in an offline simulation.
+ * Other tests may have installed a stand-in server, so it's taken away for each test and put back afterwards.
+ * */
+public class OfflineVirtualInventoryTest {
+
+    private Server server;
+
+    @Before
+    public void removeServer() throws Exception {
+        this.server = Bukkit.getServer();
+        setServer(null);
+    }
+
+    @After
+    public void restoreServer() throws Exception {
+        setServer(this.server);
+    }
+
+    @Test
+    public void addAndRemoveWithoutAServer() throws Exception {
+        VirtualInventory inventory = new VirtualInventory(3);
+        inventory.addItem(new ItemStack(Material.DIRT, 70));
+        inventory.addItem(new ItemStack(Material.STONE, 5));
+        assertAmount(inventory, 0, 64);
+        assertAmount(inventory, 1, 6);
+        assertAmount(inventory, 2, 5);
+        inventory.removeItem(new ItemStack(Material.DIRT, 66));
+        assertNull(inventory.getItem(0));
+        assertAmount(inventory, 1, 4);
+        assertEquals(5, inventory.count(new ItemStack(Material.STONE)));
+    }
+
+    @Test
+    public void itemsAreMatchedByMaterialAndDurabilityWithoutAServer() throws Exception {
+        VirtualInventory inventory = new VirtualInventory(2);
+        inventory.setItem(0, new ItemStack(Material.WOOL, 10, (short) 1));
+        inventory.setItem(1, new ItemStack(Material.WOOL, 10, (short) 2));
+        assertTrue(inventory.hasRequiredItem(new ItemStack(Material.WOOL, 1, (short) 1), 10));
+        assertFalse(inventory.hasRequiredItem(new ItemStack(Material.WOOL, 1, (short) 1), 11));
+        inventory.removeItem(new ItemStack(Material.WOOL, 10, (short) 2));
+        assertAmount(inventory, 0, 10);
+        assertNull(inventory.getItem(1));
+    }
+
+    @Test
+    public void transactionsWorkWithoutAServer() throws Exception {
+        VirtualInventory buyer = new VirtualInventory(2);
+        VirtualInventory seller = new VirtualInventory(2);
+        buyer.setItem(0, new ItemStack(Material.EMERALD, 10));
+        seller.setItem(0, new ItemStack(Material.DIAMOND, 3));
+        VirtualInventory.transaction(buyer, new ItemStack[] {new ItemStack(Material.EMERALD, 4)}, seller, new ItemStack[] {new ItemStack(Material.DIAMOND, 1)});
+        assertAmount(buyer, 0, 6);
+        assertEquals(1, buyer.count(new ItemStack(Material.DIAMOND)));
+        assertAmount(seller, 0, 2);
+        assertEquals(4, seller.count(new ItemStack(Material.EMERALD)));
+        try {
+            VirtualInventory.transaction(buyer, new ItemStack[] {new ItemStack(Material.EMERALD, 7)}, seller, new ItemStack[] {new ItemStack(Material.DIAMOND, 1)});
+            fail("The buyer should not have had enough.");
+        }
+        catch (FailedTransactionException expected) {
+            // Expected
+        }
+        assertAmount(buyer, 0, 6);
+        assertAmount(seller, 0, 2);
+    }
+
+    private static void setServer(Server server) throws Exception {
+        // Bukkit only allows the server to be set once, so it has to be swapped directly
+        Field field = Bukkit.class.getDeclaredField("server");
+        field.setAccessible(true);
+        field.set(null, server);
+    }
+
+    private static void assertAmount(VirtualInventory inventory, int slot, int amount) {
+        ItemStack item = inventory.getItem(slot);
+        assertEquals("Amount in slot " + slot, amount, item == null ? 0 : item.getAmount());
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.github.minemanmods.MinemanUtilities.inventory;
+
+import com.github.minemanmods.MinemanUtilities.TestServer;
+import com.github.minemanmods.MinemanUtilities.exceptions.FailedTransactionException;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class VirtualInventoryTest {
+
+    @BeforeClass
+    public static void setUp() {
+        TestServer.install();
+    }
+
+    @Test
+    public void addTopsUpPartialStacksBeforeFillingEmptySlots() throws Exception {
+        VirtualInventory inventory = new VirtualInventory(5);
+        inventory.setItem(2, new ItemStack(Material.DIRT, 60));
+        inventory.addItem(new ItemStack(Material.DIRT, 10));
+        assertAmount(inventory, 2, 64);
+        assertAmount(inventory, 0, 6);
+        assertNull(inventory.getItem(1));
+    }
+
+    @Test
+    public void addRespectsMaxStackSize() throws Exception {
+        VirtualInventory inventory = new VirtualInventory(5);
+        inventory.setMaxStackSize(16);
+        inventory.addItem(new ItemStack(Material.DIRT, 40));
+        assertAmount(inventory, 0, 16);
+        assertAmount(inventory, 1, 16);
+        assertAmount(inventory, 2, 8);
+    }
+
+    @Test
+    public void addThatDoesNotFitChangesNothing() {
+        VirtualInventory inventory = new VirtualInventory(2);
+        inventory.setItem(0, new ItemStack(Material.STONE, 64));
+        inventory.setItem(1, new ItemStack(Material.DIRT, 60));
+        try {
+            inventory.addItem(new ItemStack(Material.DIRT, 10));
+            fail("The item should not have fit.");
+        }
+        catch (FailedTransactionException expected) {
+            // Expected
+        }
+        assertAmount(inventory, 0, 64);
+        assertAmount(inventory, 1, 60);
+    }
+
+    @Test
+    public void removeTakesFromEarlierStacksFirst() throws Exception {
+        VirtualInventory inventory = new VirtualInventory(3);
+        inventory.setItem(0, new ItemStack(Material.DIRT, 10));
+        inventory.setItem(1, new ItemStack(Material.STONE, 10));
+        inventory.setItem(2, new ItemStack(Material.DIRT, 10));
+        inventory.removeItem(new ItemStack(Material.DIRT, 15));
+        assertNull(inventory.getItem(0));
+        assertAmount(inventory, 1, 10);
+        assertAmount(inventory, 2, 5);
+    }
+
+    @Test
+    public void removeWithoutEnoughChangesNothing() {
+        VirtualInventory inventory = new VirtualInventory(2);
+        inventory.setItem(0, new ItemStack(Material.DIRT, 10));
+        inventory.setItem(1, new ItemStack(Material.DIRT, 10));
+        try {
+            inventory.removeItem(new ItemStack(Material.DIRT, 21));
+            fail("There should not have been enough to remove.");
+        }
+        catch (FailedTransactionException expected) {
+            // Expected
+        }
+        assertAmount(inventory, 0, 10);
+        assertAmount(inventory, 1, 10);
+    }
+
+    @Test
+    public void itemsWithMetaOnlyMatchTheSameMeta() throws Exception {
+        ItemStack named = new ItemStack(Material.DIRT, 5);
+        ItemMeta meta = named.getItemMeta();
+        meta.setDisplayName("Named");
+        named.setItemMeta(meta);
+        VirtualInventory inventory = new VirtualInventory(3);
+        inventory.setItem(0, named);
+        inventory.setItem(1, new ItemStack(Material.DIRT, 5));
+        assertEquals(5, inventory.count(new ItemStack(Material.DIRT)));
+        assertEquals(5, inventory.count(named));
+        inventory.addItem(named);
+        assertAmount(inventory, 0, 10);
+        assertAmount(inventory, 1, 5);
+    }
+
+    @Test
+    public void failedTransactionRestoresBothInventories() {
+        VirtualInventory buyer = new VirtualInventory(1);
+        VirtualInventory seller = new VirtualInventory(1);
+        buyer.setItem(0, new ItemStack(Material.DIRT, 10));
+        seller.setItem(0, new ItemStack(Material.STONE, 64));
+        try {
+            // The buyer's only slot still holds dirt, so there's nowhere to put the stone
+            VirtualInventory.transaction(buyer, new ItemStack[] {new ItemStack(Material.DIRT, 5)}, seller, new ItemStack[] {new ItemStack(Material.STONE, 1)});
+            fail("The transaction should have failed.");
+        }
+        catch (FailedTransactionException expected) {
+            // Expected
+        }
+        assertAmount(buyer, 0, 10);
+        assertAmount(seller, 0, 64);
+    }
+
+    @Test
+    public void pagesReachBeyondADoubleChest() {
+        VirtualInventory inventory = new VirtualInventory(120);
+        inventory.setItem(119, new ItemStack(Material.DIRT, 1));
+        assertEquals(3, inventory.getPageCount(VirtualInventory.PAGE_SIZE));
+        ItemStack[] page = inventory.getPage(2, VirtualInventory.PAGE_SIZE);
+        assertEquals(VirtualInventory.PAGE_SIZE, page.length);
+        assertEquals(Material.DIRT, page[119 - 2 * VirtualInventory.PAGE_SIZE].getType());
+        page[0] = new ItemStack(Material.STONE, 3);
+        inventory.setPage(2, VirtualInventory.PAGE_SIZE, page);
+        assertAmount(inventory, 2 * VirtualInventory.PAGE_SIZE, 3);
+    }
+
+    private static void assertAmount(VirtualInventory inventory, int slot, int amount) {
+        ItemStack item = inventory.getItem(slot);
+        assertEquals("Amount in slot " + slot, amount, item == null ? 0 : item.getAmount());
+    }
+
+}